@@ -0,0 +1,218 @@
+package uk.ac.ed.acp.cw2.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds and measures the HTTP traffic to the ILP service.
+ * <p>
+ * Every host gets its own pool of {@code maxConnectionsPerHost} permits; a request holds a permit until its response
+ * is closed and waits at most {@code poolAcquireTimeout} for one. The response body is cut off once the request has
+ * been running longer than {@code totalTimeout}, so a server that trickles bytes can't hold a thread past it.
+ * Pool utilisation and timeout counts are published as {@code ilp.http.*} meters.
+ */
+public class IlpHttpClientInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IlpHttpClientInterceptor.class);
+
+    private final int maxConnectionsPerHost;
+    private final Duration poolAcquireTimeout;
+    private final Duration totalTimeout;
+
+    private final Map<String, Semaphore> poolsByHost = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder poolWaitTimeouts = new LongAdder();
+    private final LongAdder connectTimeouts = new LongAdder();
+    private final LongAdder readTimeouts = new LongAdder();
+    private final LongAdder totalTimeouts = new LongAdder();
+
+    public IlpHttpClientInterceptor(int maxConnectionsPerHost, Duration poolAcquireTimeout, Duration totalTimeout) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be at least 1");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.poolAcquireTimeout = poolAcquireTimeout;
+        this.totalTimeout = totalTimeout;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String host = request.getURI().getHost() == null ? "" : request.getURI().getHost();
+        Semaphore pool = poolsByHost.computeIfAbsent(host, h -> new Semaphore(maxConnectionsPerHost, true));
+
+        acquire(pool, host);
+        long deadlineNs = System.nanoTime() + totalTimeout.toNanos();
+        requests.increment();
+        try {
+            return new PooledResponse(execution.execute(request, body), pool, deadlineNs);
+        } catch (HttpConnectTimeoutException e) {
+            connectTimeouts.increment();
+            pool.release();
+            throw e;
+        } catch (HttpTimeoutException | SocketTimeoutException e) {
+            readTimeouts.increment();
+            pool.release();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            pool.release();
+            throw e;
+        }
+    }
+
+    private void acquire(Semaphore pool, String host) throws IOException {
+        try {
+            if (!pool.tryAcquire(poolAcquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                poolWaitTimeouts.increment();
+                logger.warn("ILP connection pool for {} exhausted ({} in use) after waiting {}ms",
+                        host, maxConnectionsPerHost, poolAcquireTimeout.toMillis());
+                throw new SocketTimeoutException("No ILP connection available for " + host
+                        + " within " + poolAcquireTimeout.toMillis() + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for an ILP connection", e);
+        }
+    }
+
+    public int getActiveConnections() {
+        int active = 0;
+        for (Semaphore pool : poolsByHost.values()) {
+            active += maxConnectionsPerHost - pool.availablePermits();
+        }
+        return active;
+    }
+
+    public int getWaitingRequests() {
+        int waiting = 0;
+        for (Semaphore pool : poolsByHost.values()) {
+            waiting += pool.getQueueLength();
+        }
+        return waiting;
+    }
+
+    public long getTimeoutCount() {
+        return poolWaitTimeouts.sum() + connectTimeouts.sum() + readTimeouts.sum() + totalTimeouts.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ilp.http.connections.active", this, IlpHttpClientInterceptor::getActiveConnections)
+                .description("ILP requests currently holding a pooled connection")
+                .register(registry);
+        Gauge.builder("ilp.http.connections.max", this, i -> i.maxConnectionsPerHost * Math.max(1, i.poolsByHost.size()))
+                .description("Pooled connections available across all ILP hosts")
+                .register(registry);
+        Gauge.builder("ilp.http.connections.pending", this, IlpHttpClientInterceptor::getWaitingRequests)
+                .description("ILP requests waiting for a pooled connection")
+                .register(registry);
+        FunctionCounter.builder("ilp.http.requests", requests, LongAdder::sum)
+                .register(registry);
+        timeoutCounter(registry, "pool", poolWaitTimeouts);
+        timeoutCounter(registry, "connect", connectTimeouts);
+        timeoutCounter(registry, "read", readTimeouts);
+        timeoutCounter(registry, "total", totalTimeouts);
+    }
+
+    private static void timeoutCounter(MeterRegistry registry, String kind, LongAdder count) {
+        FunctionCounter.builder("ilp.http.timeouts", count, LongAdder::sum)
+                .tag("kind", kind)
+                .description("ILP requests that gave up waiting")
+                .register(registry);
+    }
+
+    // Holds the pool permit until the response is closed and enforces the total deadline while the body is read
+    private final class PooledResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Semaphore pool;
+        private final long deadlineNs;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private InputStream body;
+
+        PooledResponse(ClientHttpResponse delegate, Semaphore pool, long deadlineNs) {
+            this.delegate = delegate;
+            this.pool = pool;
+            this.deadlineNs = deadlineNs;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new DeadlineInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) pool.release();
+            }
+        }
+
+        private final class DeadlineInputStream extends FilterInputStream {
+            DeadlineInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                checkDeadline();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkDeadline();
+                return super.read(b, off, len);
+            }
+
+            private void checkDeadline() throws IOException {
+                if (System.nanoTime() - deadlineNs > 0) {
+                    totalTimeouts.increment();
+                    throw new SocketTimeoutException("ILP response exceeded total timeout of " + totalTimeout.toMillis() + "ms");
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package uk.ac.ed.acp.cw2.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class IlpRestServiceConfig {
 
@@ -30,9 +35,35 @@ public class IlpRestServiceConfig {
         return normalize(DEFAULT_ILP_ENDPOINT);
     }
 
+    // Per-host connection limits, pool wait and total timeouts for ILP calls; also publishes the ilp.http.* metrics.
+    @Bean
+    public IlpHttpClientInterceptor ilpHttpClientInterceptor(
+            @Value("${ilp.http.max-connections-per-host:20}") int maxConnectionsPerHost,
+            @Value("${ilp.http.pool-acquire-timeout:1s}") Duration poolAcquireTimeout,
+            @Value("${ilp.http.total-timeout:10s}") Duration totalTimeout) {
+        return new IlpHttpClientInterceptor(maxConnectionsPerHost, poolAcquireTimeout, totalTimeout);
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(IlpHttpClientInterceptor ilpHttpClientInterceptor,
+                                     @Value("${ilp.http.connect-timeout:2s}") Duration connectTimeout,
+                                     @Value("${ilp.http.read-timeout:5s}") Duration readTimeout,
+                                     @Value("${ilp.http.http2:true}") boolean http2) {
+        // Idle connections are kept per host for -Djdk.httpclient.keepalive.timeout, a JVM-wide setting given at
+        // launch (see the Dockerfile and the spring-boot plugin in pom.xml) rather than here
+        HttpClient httpClient = HttpClient.newBuilder()
+                // HTTP/2 is negotiated per connection and falls back to HTTP/1.1 when the server doesn't offer it
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(ilpHttpClientInterceptor);
+        return restTemplate;
     }
 
     private String normalize(String url) {
@@ -1,9 +1,25 @@
 package uk.ac.ed.acp.cw2.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.data.IlpCircuitBreaker;
+import uk.ac.ed.acp.cw2.data.IlpDataset;
+import uk.ac.ed.acp.cw2.data.IlpPayload;
+import uk.ac.ed.acp.cw2.data.IlpSingleFlight;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
 import uk.ac.ed.acp.cw2.dto.DroneDto;
 import uk.ac.ed.acp.cw2.dto.DroneForServicePointDto;
 import uk.ac.ed.acp.cw2.dto.DroneServicePointDto;
@@ -15,12 +31,40 @@ import uk.ac.ed.acp.cw2.entity.RestrictedArea;
 import uk.ac.ed.acp.cw2.mapper.DroneForServicePointMapper;
 import uk.ac.ed.acp.cw2.mapper.DroneMapper;
 import uk.ac.ed.acp.cw2.mapper.DroneServicePointMapper;
+import uk.ac.ed.acp.cw2.mapper.IlpStreamingDecoder;
 import uk.ac.ed.acp.cw2.mapper.RestrictedAreaMapper;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Controller
-public class ILPRestController {
+public class ILPRestController implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ILPRestController.class);
+
+    // Virtual threads: the fan-out tasks spend almost all their time blocked on the network
+    private static final ExecutorService FETCH_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
 
     @Autowired
     private RestTemplate restTemplate;
@@ -28,6 +72,20 @@ public class ILPRestController {
     @Autowired
     private Environment env;
 
+    @Value("${ilp.service.fetch-deadline:10s}")
+    private Duration fetchDeadline;
+
+    @Value("${ilp.service.breaker.failure-threshold:3}")
+    private int breakerFailureThreshold;
+
+    @Value("${ilp.service.breaker.open-duration:30s}")
+    private Duration breakerOpenDuration;
+
+    private final Map<IlpDataset, IlpCircuitBreaker> breakers = new EnumMap<>(IlpDataset.class);
+
+    // Concurrent callers asking for the same dataset share one upstream call
+    private final IlpSingleFlight singleFlight = new IlpSingleFlight(FETCH_EXECUTOR);
+
     private final String ilpEndpoint;
 
     @Autowired
@@ -35,6 +93,13 @@ public class ILPRestController {
         this.ilpEndpoint = ilpEndpoint;
     }
 
+    @PostConstruct
+    void initBreakers() {
+        for (IlpDataset dataset : IlpDataset.values()) {
+            breakers.put(dataset, new IlpCircuitBreaker(dataset.getPath().substring(1), breakerFailureThreshold, breakerOpenDuration));
+        }
+    }
+
     // Read the base ILP URL on every call so it can change between requests.
     private String getServiceBaseUrl() {
         // Prefer spring property (allows dynamic changes via Environment) if present, otherwise use injected bean value.
@@ -49,26 +114,251 @@ public class ILPRestController {
     }
 
     public List<Drone> fetchDronesFromIlp() {
-        String dronesUrl = getServiceBaseUrl() + "/drones";
-        DroneDto[] response = restTemplate.getForObject(dronesUrl, DroneDto[].class);
-        return DroneMapper.fromDtoList(response);
+        return fetch(IlpDataset.DRONES, DroneDto[].class, DroneMapper::fromDtoList);
     }
 
     public List<DroneServicePoint> fetchServicePointsFromIlp() {
-        String servicePointsUrl = getServiceBaseUrl() + "/service-points";
-        DroneServicePointDto[] response = restTemplate.getForObject(servicePointsUrl, DroneServicePointDto[].class);
-        return DroneServicePointMapper.fromDtoList(response);
+        return fetch(IlpDataset.SERVICE_POINTS, DroneServicePointDto[].class, DroneServicePointMapper::fromDtoList);
     }
 
     public List<DroneForServicePoint> fetchDronesForServicePointsFromIlp() {
-        String forServicePointsUrl = getServiceBaseUrl() + "/drones-for-service-points";
-        DroneForServicePointDto[] response = restTemplate.getForObject(forServicePointsUrl, DroneForServicePointDto[].class);
-        return DroneForServicePointMapper.fromDtoList(response);
+        return fetch(IlpDataset.DRONES_FOR_SERVICE_POINTS, DroneForServicePointDto[].class, DroneForServicePointMapper::fromDtoList);
     }
 
     public List<RestrictedArea> fetchRestrictedAreasFromIlp() {
-        String restrictedAreasUrl = getServiceBaseUrl() + "/restricted-areas";
-        RestrictedAreaDto[] response = restTemplate.getForObject(restrictedAreasUrl, RestrictedAreaDto[].class);
-        return RestrictedAreaMapper.fromDtoList(response);
+        return fetch(IlpDataset.RESTRICTED_AREAS, RestrictedAreaDto[].class, RestrictedAreaMapper::fromDtoList);
+    }
+
+    public IlpPayload<Drone> fetchDronesIfChanged(IlpPayload<Drone> previous) {
+        return singleFlight.execute(IlpDataset.DRONES,
+                () -> fetchIfChanged(IlpDataset.DRONES, previous, IlpStreamingDecoder::decodeDrones));
+    }
+
+    public IlpPayload<DroneServicePoint> fetchServicePointsIfChanged(IlpPayload<DroneServicePoint> previous) {
+        return singleFlight.execute(IlpDataset.SERVICE_POINTS,
+                () -> fetchIfChanged(IlpDataset.SERVICE_POINTS, previous, IlpStreamingDecoder::decodeServicePoints));
+    }
+
+    public IlpPayload<DroneForServicePoint> fetchDronesForServicePointsIfChanged(IlpPayload<DroneForServicePoint> previous) {
+        return singleFlight.execute(IlpDataset.DRONES_FOR_SERVICE_POINTS,
+                () -> fetchIfChanged(IlpDataset.DRONES_FOR_SERVICE_POINTS, previous, IlpStreamingDecoder::decodeDronesForServicePoints));
+    }
+
+    public IlpPayload<RestrictedArea> fetchRestrictedAreasIfChanged(IlpPayload<RestrictedArea> previous) {
+        return singleFlight.execute(IlpDataset.RESTRICTED_AREAS,
+                () -> fetchIfChanged(IlpDataset.RESTRICTED_AREAS, previous, IlpStreamingDecoder::decodeRestrictedAreas));
+    }
+
+    // Unconditional GET, coalesced with any fetch of the same dataset already in flight. Its payload carries no
+    // validators or hash, so a conditional caller that joins it simply fetches in full on its next refresh.
+    private <D, T> List<T> fetch(IlpDataset dataset, Class<D[]> dtoType, Function<D[], List<T>> mapper) {
+        IlpPayload<T> payload = singleFlight.execute(dataset,
+                () -> IlpPayload.of(mapper.apply(restTemplate.getForObject(getServiceBaseUrl() + dataset.getPath(), dtoType))));
+        return payload.data();
+    }
+
+    /**
+     * Fetches all four ILP datasets concurrently, bounded by the configured {@code ilp.service.fetch-deadline}.
+     *
+     * @return snapshot holding the drones, service points, drones-for-service-points and restricted areas
+     */
+    public IlpSnapshot fetchAllFromIlp() {
+        return fetchAllFromIlp(null);
+    }
+
+    /**
+     * Refreshes all four ILP datasets concurrently, bounded by the configured {@code ilp.service.fetch-deadline}.
+     *
+     * @param previous snapshot to revalidate against, or null to fetch everything
+     * @return {@code previous} itself when no dataset changed, otherwise a snapshot reusing every unchanged dataset
+     */
+    public IlpSnapshot fetchAllFromIlp(IlpSnapshot previous) {
+        return fetchAllFromIlp(previous, fetchDeadline);
+    }
+
+    /**
+     * Refreshes all four ILP datasets concurrently so the latency is that of the slowest call rather than the sum.
+     * Each dataset goes through its own circuit breaker: when a call fails, times out or is not attempted because
+     * the breaker is open, the dataset keeps its payload from {@code previous} and is marked stale in the result.
+     *
+     * @param previous snapshot to revalidate against, or null to fetch everything
+     * @param deadline shared deadline for all four calls
+     * @return {@code previous} itself when nothing changed, otherwise a snapshot reusing every unchanged dataset
+     * @throws ResponseStatusException with 504 status when the deadline passes, or 503 when a breaker is open,
+     *                                 for a dataset that has no previous payload to fall back on
+     */
+    public IlpSnapshot fetchAllFromIlp(IlpSnapshot previous, Duration deadline) {
+        FetchRound round = new FetchRound(System.nanoTime() + deadline.toNanos(), deadline);
+
+        Future<IlpPayload<Drone>> drones = submit(IlpDataset.DRONES,
+                previous == null ? null : previous.getDronesPayload(), this::fetchDronesIfChanged);
+        Future<IlpPayload<DroneServicePoint>> servicePoints = submit(IlpDataset.SERVICE_POINTS,
+                previous == null ? null : previous.getServicePointsPayload(), this::fetchServicePointsIfChanged);
+        Future<IlpPayload<DroneForServicePoint>> dronesForServicePoints = submit(IlpDataset.DRONES_FOR_SERVICE_POINTS,
+                previous == null ? null : previous.getDronesForServicePointsPayload(), this::fetchDronesForServicePointsIfChanged);
+        Future<IlpPayload<RestrictedArea>> restrictedAreas = submit(IlpDataset.RESTRICTED_AREAS,
+                previous == null ? null : previous.getRestrictedAreasPayload(), this::fetchRestrictedAreasIfChanged);
+
+        try {
+            // collect every dataset before failing so each breaker sees the outcome of the call it allowed
+            IlpSnapshot fetched = new IlpSnapshot(
+                    round.collect(IlpDataset.DRONES, drones, previous == null ? null : previous.getDronesPayload()),
+                    round.collect(IlpDataset.SERVICE_POINTS, servicePoints, previous == null ? null : previous.getServicePointsPayload()),
+                    round.collect(IlpDataset.DRONES_FOR_SERVICE_POINTS, dronesForServicePoints, previous == null ? null : previous.getDronesForServicePointsPayload()),
+                    round.collect(IlpDataset.RESTRICTED_AREAS, restrictedAreas, previous == null ? null : previous.getRestrictedAreasPayload()),
+                    Instant.now(),
+                    round.stale);
+            if (round.failure != null) throw round.failure;
+            if (fetched.sameDataAs(previous) && fetched.getStaleDatasets().equals(previous.getStaleDatasets())) {
+                return previous;
+            }
+            return fetched;
+        } finally {
+            // stop whatever is still running once the outcome is decided (no-op for completed calls)
+            Stream.of(drones, servicePoints, dronesForServicePoints, restrictedAreas)
+                    .filter(Objects::nonNull)
+                    .forEach(f -> f.cancel(true));
+        }
+    }
+
+    // Null when the dataset's breaker rejects the call
+    private <T> Future<IlpPayload<T>> submit(IlpDataset dataset, IlpPayload<T> previous,
+                                             Function<IlpPayload<T>, IlpPayload<T>> fetch) {
+        if (!breakers.get(dataset).tryAcquire()) return null;
+        return FETCH_EXECUTOR.submit(() -> fetch.apply(previous));
+    }
+
+    private static <T> T await(Future<T> future, long deadlineNs)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(Math.max(0, deadlineNs - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    // Outcome of one fetchAllFromIlp call: which datasets fell back to their previous payload, and the first error
+    // for a dataset that had nothing to fall back on
+    private final class FetchRound {
+        private final long deadlineNs;
+        private final Duration deadline;
+        private final Set<IlpDataset> stale = EnumSet.noneOf(IlpDataset.class);
+        private RuntimeException failure;
+
+        private FetchRound(long deadlineNs, Duration deadline) {
+            this.deadlineNs = deadlineNs;
+            this.deadline = deadline;
+        }
+
+        private <T> IlpPayload<T> collect(IlpDataset dataset, Future<IlpPayload<T>> future, IlpPayload<T> previous) {
+            IlpCircuitBreaker breaker = breakers.get(dataset);
+            if (future == null) {
+                return fallBack(dataset, previous, new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "ILP " + dataset.getPath() + " unavailable (circuit breaker open)"));
+            }
+
+            try {
+                IlpPayload<T> payload = await(future, deadlineNs);
+                breaker.onSuccess();
+                return payload;
+            } catch (TimeoutException e) {
+                breaker.onFailure();
+                future.cancel(true);
+                return fallBack(dataset, previous, new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                        "ILP fetch exceeded " + deadline.toMillis() + "ms"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                breaker.onFailure();
+                return fallBack(dataset, previous,
+                        new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "ILP fetch interrupted"));
+            } catch (ExecutionException e) {
+                breaker.onFailure();
+                RuntimeException cause = e.getCause() instanceof RuntimeException re
+                        ? re
+                        : new IllegalStateException("ILP fetch failed", e.getCause());
+                return fallBack(dataset, previous, cause);
+            }
+        }
+
+        private <T> IlpPayload<T> fallBack(IlpDataset dataset, IlpPayload<T> previous, RuntimeException error) {
+            if (previous == null) {
+                if (failure == null) failure = error;
+                return null;
+            }
+            logger.warn("Serving stale ILP {}: {}", dataset.getPath(), error.getMessage());
+            stale.add(dataset);
+            return previous;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        breakers.values().forEach(b -> b.bindTo(registry));
+        singleFlight.bindTo(registry);
+    }
+
+    public IlpCircuitBreaker getBreaker(IlpDataset dataset) {
+        return breakers.get(dataset);
+    }
+
+    // Conditional GET: send the previous validators so the server can answer 304; a 200 carrying the same validators
+    // is treated the same way, and otherwise the body is hashed before it is decoded when there is a previous hash to
+    // compare it with. Either way an unchanged dataset returns the previous payload without decoding or mapping.
+    private <T> IlpPayload<T> fetchIfChanged(IlpDataset dataset, IlpPayload<T> previous, BodyDecoder<T> decoder) {
+        String url = getServiceBaseUrl() + dataset.getPath();
+        return restTemplate.execute(url, HttpMethod.GET,
+                request -> {
+                    if (previous == null) return;
+                    if (previous.etag() != null) request.getHeaders().set(HttpHeaders.IF_NONE_MATCH, previous.etag());
+                    if (previous.lastModified() != null) request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, previous.lastModified());
+                },
+                response -> {
+                    if (previous != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return previous;
+                    }
+
+                    String etag = response.getHeaders().getETag();
+                    String lastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+                    boolean sameValidators = previous != null
+                            && Objects.equals(etag, previous.etag())
+                            && Objects.equals(lastModified, previous.lastModified());
+                    if (sameValidators && (etag != null || lastModified != null)) {
+                        // the server ignored the conditional headers, but its validators say nothing changed
+                        return previous;
+                    }
+
+                    if (previous == null || previous.contentHash() == null) {
+                        // no hash to compare with, so decode straight off the wire and hash the bytes in passing
+                        MessageDigest digest = sha256();
+                        List<T> data = decodeAndDrain(new DigestInputStream(response.getBody(), digest), decoder);
+                        return new IlpPayload<>(data, etag, lastModified, digest.digest());
+                    }
+
+                    // hash before decoding, so an unchanged body is never decoded or mapped
+                    byte[] body = StreamUtils.copyToByteArray(response.getBody());
+                    byte[] hash = sha256().digest(body);
+                    if (previous.hasContentHash(hash)) {
+                        // same bytes, possibly under new validators: keep the entities callers already hold
+                        return sameValidators ? previous : new IlpPayload<>(previous.data(), etag, lastModified, hash);
+                    }
+                    return new IlpPayload<>(decoder.decode(new ByteArrayInputStream(body)), etag, lastModified, hash);
+                });
+    }
+
+    // The parser stops at the closing bracket; read whatever trails it so the digest covers the whole body
+    private static <T> List<T> decodeAndDrain(InputStream body, BodyDecoder<T> decoder) throws IOException {
+        List<T> data = decoder.decode(body);
+        body.transferTo(OutputStream.nullOutputStream());
+        return data;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyDecoder<T> {
+        List<T> decode(InputStream body) throws IOException;
     }
 }
@@ -7,16 +7,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+import uk.ac.ed.acp.cw2.data.WorldSnapshot;
 import uk.ac.ed.acp.cw2.dto.*;
 import uk.ac.ed.acp.cw2.entity.Drone;
-import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
-import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
-import uk.ac.ed.acp.cw2.entity.RestrictedArea;
 import uk.ac.ed.acp.cw2.service.*;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.net.URL;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*")
 @RestController()
@@ -25,20 +25,34 @@ public class ServiceController {
 
     private static final Logger logger = LoggerFactory.getLogger(ServiceController.class);
 
+    // Lists the ILP datasets a response was computed from but that could not be refreshed, e.g. "drones, restricted-areas"
+    public static final String STALE_HEADER = "X-Ilp-Stale";
+
     @Value("${ilp.service.url}")
     public URL serviceUrl;
 
-    private final ILPRestController ilpRestController;
+    private final IlpDataCache ilpDataCache;
     private final DroneService droneService;
 
     @Autowired
-    public ServiceController(ILPRestController ilpRestController,
+    public ServiceController(IlpDataCache ilpDataCache,
                              DroneService droneService) {
-        this.ilpRestController = ilpRestController;
+        this.ilpDataCache = ilpDataCache;
         this.droneService = droneService;
     }
 
 
+    private WorldSnapshot world(HttpServletResponse response) {
+        WorldSnapshot world = ilpDataCache.world();
+        IlpSnapshot snapshot = world.getSnapshot();
+        if (snapshot.isStale()) {
+            response.setHeader(STALE_HEADER, snapshot.getStaleDatasets().stream()
+                    .map(d -> d.getPath().substring(1))
+                    .collect(Collectors.joining(", ")));
+        }
+        return world;
+    }
+
     @GetMapping("/")
     public String index() {
         return "<html><body>" +
@@ -158,92 +172,102 @@ public class ServiceController {
     /**
      * Endpoint to retrieve a list of drone IDs that have cooling capabilities based on their state.
      * @param state The state of the drone's cooling capability to retrieve.
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
      * @return A list of drone IDs, or an empty list if none are found.
      */
     @GetMapping("/dronesWithCooling/{state}")
-    public String[] dronesWithCooling(@PathVariable Boolean state) {
-        List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-        return droneService.dronesWithCooling(state, drones);
+    public String[] dronesWithCooling(@PathVariable Boolean state, HttpServletResponse response) {
+        return droneService.dronesWithCooling(state, world(response).getDroneColumns());
     }
 
     /**
      * Endpoint to return the Drone entity for the given id or throws 404 if not found.
      *
      * @param id drone id
+     * @param response HttpServletResponse to mark answers served from stale ILP data
      * @return Drone entity
      * @throws ResponseStatusException with 404 status when the id does not exist
      */
     @GetMapping("/droneDetails/{id}")
-    public Drone droneDetails(@PathVariable String id) {
-        List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-        return droneService.droneDetails(id, drones);
+    public Drone droneDetails(@PathVariable String id, HttpServletResponse response) {
+        return droneService.droneDetails(id, world(response));
     }
 
     /**
      * Endpoint to return an array of drone IDs that are able to fulfill the given attribute name and value.
      * @param name Attribute name to query on
      * @param value Attribute value to query on
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
      * @return Array of drone IDs, or an empty list if none are found.
      */
     @GetMapping("/queryAsPath/{attribute-name}/{attribute-value}")
-    public String[] queryAsPath(@PathVariable("attribute-name") String name, @PathVariable("attribute-value") String value ) {
-        List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-        return droneService.queryAsPath(name, value, drones);
+    public String[] queryAsPath(@PathVariable("attribute-name") String name, @PathVariable("attribute-value") String value,
+                               HttpServletResponse response) {
+        return droneService.queryAsPath(name, value, world(response));
     }
 
     /**
      * Endpoint to return an array of drone IDs that are able to fulfill the given QueryRequest array.
      * @param req Array of QueryRequest objects
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
      * @return Array of drone IDs, or an empty list if none are found.
      */
     @PostMapping("/query")
-    public String[] query(@RequestBody List<QueryRequest> req ) {
-        List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-        return droneService.query(req, drones);
+    public String[] query(@RequestBody List<QueryRequest> req, HttpServletResponse response) {
+        return droneService.query(req, world(response));
+    }
+
+    /**
+     * Endpoint answering many /query bodies and /droneDetails ids in one call, all from the same ILP data.
+     * @param req query sets and drone ids
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
+     * @return matching drone IDs per query set and the drone per id (null if not found), in request order.
+     */
+    @PostMapping("/batchQuery")
+    public BatchQueryResponse batchQuery(@RequestBody BatchQueryRequest req, HttpServletResponse response) {
+        return droneService.batchQuery(req, world(response));
     }
 
     /**
      * Endpoint to return an array of drone IDs that are able to fulfill the given array of MedDispatchRec.
      * @param req array of MedDispatchRecs
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
      * @return array of drone IDs, or an empty list if none are found.
      */
     @PostMapping("/queryAvailableDrones")
-    public String[] queryAvailableDrones(@RequestBody List<MedDispatchRecRequest> req) {
-        List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-        List<DroneForServicePoint> dronesForServicePoints = ilpRestController.fetchDronesForServicePointsFromIlp();
-        return droneService.queryAvailableDrones(req, drones, dronesForServicePoints);
+    public String[] queryAvailableDrones(@RequestBody List<MedDispatchRecRequest> req, HttpServletResponse response) {
+        WorldSnapshot world = world(response);
+        return droneService.queryAvailableDrones(req, world.getDrones(), world);
     }
 
     /**
      * Endpoint to calculate the delivery paths for the given array of MedDispatchRec.
      * @param req array of MedDispatchRecs, each containing a list of requirements.
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
      * @return CalculatedDeliveryPathRequest object containing the delivery paths and total cost.
      */
     @PostMapping("calcDeliveryPath")
-    public CalculatedDeliveryPathRequest calcDeliveryPath(@RequestBody List<MedDispatchRecRequest> req) {
-        List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-        List<DroneServicePoint> servicePoints = ilpRestController.fetchServicePointsFromIlp();
-        List<DroneForServicePoint> dronesForServicePoints = ilpRestController.fetchDronesForServicePointsFromIlp();
-        List<RestrictedArea> restrictedAreas = ilpRestController.fetchRestrictedAreasFromIlp();
-        String[] droneIDs = droneService.queryAvailableDrones(req, drones, dronesForServicePoints);
-        return droneService.calcDeliveryPath(req, drones, servicePoints, restrictedAreas, droneIDs, dronesForServicePoints);
+    public CalculatedDeliveryPathRequest calcDeliveryPath(@RequestBody List<MedDispatchRecRequest> req,
+                                                          HttpServletResponse response) {
+        WorldSnapshot world = world(response);
+        String[] droneIDs = droneService.queryAvailableDrones(req, world.getDrones(), world);
+        return droneService.calcDeliveryPath(req, world, droneIDs);
     }
 
     /**
      * Endpoint to calculate the delivery paths for the given array of MedDispatchRec and return the results as a GeoJSON FeatureCollection.
      * @param req array of MedDispatchRecs, each containing a list of requirements.
+     * @param response HttpServletResponse to mark answers served from stale ILP data.
      * @return GeoJSON FeatureCollection object containing the delivery paths and total cost.
      */
     @PostMapping("calcDeliveryPathAsGeoJson")
-    public ObjectNode calcDeliveryPathAsGeoJson(@RequestBody List<MedDispatchRecRequest> req) {
-         List<Drone> drones = ilpRestController.fetchDronesFromIlp();
-         List<DroneServicePoint> servicePoints = ilpRestController.fetchServicePointsFromIlp();
-         List<DroneForServicePoint> dronesForServicePoints = ilpRestController.fetchDronesForServicePointsFromIlp();
-         List<RestrictedArea> restrictedAreas = ilpRestController.fetchRestrictedAreasFromIlp();
-         String[] droneIDs = droneService.queryAvailableDrones(req, drones, dronesForServicePoints);
+    public ObjectNode calcDeliveryPathAsGeoJson(@RequestBody List<MedDispatchRecRequest> req,
+                                                HttpServletResponse response) {
+         WorldSnapshot world = world(response);
+         String[] droneIDs = droneService.queryAvailableDrones(req, world.getDrones(), world);
 
          // compute the detailed delivery path structure first
-         CalculatedDeliveryPathRequest calc = droneService.calcDeliveryPath(req, drones, servicePoints, restrictedAreas, droneIDs, dronesForServicePoints);
+         CalculatedDeliveryPathRequest calc = droneService.calcDeliveryPath(req, world, droneIDs);
          // build and return a GeoJSON FeatureCollection object (Jackson ObjectNode)
          return droneService.buildGeoJsonObject(calc);
      }
@@ -0,0 +1,126 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Drone availability windows indexed by day of week, answering "which drones are available on day D at time T"
+ * with one binary search and a bitset lookup instead of scanning every drone's windows.
+ * <p>
+ * Each day (and one extra timeline for "any day") keeps the distinct window start and end times in order. Those
+ * boundaries cut the day into points and open gaps between them, and no window starts or ends inside a gap, so a
+ * single bitset of drones per point and per gap answers every time of day. Windows are closed: a drone is
+ * available at both {@code from} and {@code until}, and a window whose {@code from} is after its {@code until}
+ * never matches.
+ * <p>
+ * Built from the availability of a {@link WorldSnapshot} and never modified afterwards.
+ */
+public final class AvailabilityIndex {
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<DayOfWeek, BitSet> anyTime = new EnumMap<>(DayOfWeek.class);
+    private final Map<DayOfWeek, Timeline> byDay = new EnumMap<>(DayOfWeek.class);
+    private final Timeline anyDay;
+
+    private AvailabilityIndex(Map<String, List<DroneForServicePoint.Availability>> availabilityByDroneId) {
+        Map<DayOfWeek, List<Window>> windowsByDay = new EnumMap<>(DayOfWeek.class);
+        List<Window> allWindows = new ArrayList<>();
+
+        for (Map.Entry<String, List<DroneForServicePoint.Availability>> e : availabilityByDroneId.entrySet()) {
+            int ordinal = ordinals.size();
+            ordinals.put(e.getKey(), ordinal);
+            for (DroneForServicePoint.Availability a : e.getValue()) {
+                if (a == null) continue;
+                if (a.getDayOfWeek() != null) {
+                    anyTime.computeIfAbsent(a.getDayOfWeek(), d -> new BitSet()).set(ordinal);
+                }
+                // a window without both ends only counts when no time is asked for
+                if (a.getFrom() == null || a.getUntil() == null || a.getFrom().isAfter(a.getUntil())) continue;
+                Window w = new Window(ordinal, a.getFrom(), a.getUntil());
+                allWindows.add(w);
+                if (a.getDayOfWeek() != null) {
+                    windowsByDay.computeIfAbsent(a.getDayOfWeek(), d -> new ArrayList<>()).add(w);
+                }
+            }
+        }
+
+        windowsByDay.forEach((day, windows) -> byDay.put(day, new Timeline(windows)));
+        anyDay = new Timeline(allWindows);
+    }
+
+    public static AvailabilityIndex of(Map<String, List<DroneForServicePoint.Availability>> availabilityByDroneId) {
+        return new AvailabilityIndex(availabilityByDroneId == null ? Map.of() : availabilityByDroneId);
+    }
+
+    /**
+     * Drones available on {@code day} at {@code time}.
+     *
+     * @param day  day of week, or null for any day
+     * @param time time of day, or null for any time on that day
+     * @return test on drone ids; with neither day nor time every drone passes, even one without windows
+     */
+    public Predicate<String> availableAt(DayOfWeek day, LocalTime time) {
+        if (day == null && time == null) return id -> true;
+
+        BitSet drones;
+        if (time == null) {
+            drones = anyTime.get(day);
+        } else {
+            Timeline timeline = day == null ? anyDay : byDay.get(day);
+            drones = timeline == null ? null : timeline.at(time);
+        }
+        if (drones == null || drones.isEmpty()) return id -> false;
+        return id -> {
+            Integer ordinal = ordinals.get(id);
+            return ordinal != null && drones.get(ordinal);
+        };
+    }
+
+    private record Window(int ordinal, LocalTime from, LocalTime until) {
+    }
+
+    // The distinct window ends of one day, in order, with the drones available at each and in each gap between them
+    private static final class Timeline {
+
+        private final LocalTime[] boundaries;
+        private final BitSet[] atBoundary;
+        // gaps[i] is the open interval just before boundaries[i]; gaps[boundaries.length] is after the last one
+        private final BitSet[] gaps;
+
+        private Timeline(List<Window> windows) {
+            TreeSet<LocalTime> ends = new TreeSet<>();
+            for (Window w : windows) {
+                ends.add(w.from());
+                ends.add(w.until());
+            }
+            boundaries = ends.toArray(new LocalTime[0]);
+            atBoundary = new BitSet[boundaries.length];
+            gaps = new BitSet[boundaries.length + 1];
+            for (int i = 0; i < boundaries.length; i++) atBoundary[i] = new BitSet();
+            for (int i = 0; i < gaps.length; i++) gaps[i] = new BitSet();
+
+            for (Window w : windows) {
+                int from = Arrays.binarySearch(boundaries, w.from());
+                int until = Arrays.binarySearch(boundaries, w.until());
+                for (int i = from; i <= until; i++) atBoundary[i].set(w.ordinal());
+                for (int i = from + 1; i <= until; i++) gaps[i].set(w.ordinal());
+            }
+        }
+
+        private BitSet at(LocalTime time) {
+            int i = Arrays.binarySearch(boundaries, time);
+            return i >= 0 ? atBoundary[i] : gaps[-i - 1];
+        }
+    }
+}
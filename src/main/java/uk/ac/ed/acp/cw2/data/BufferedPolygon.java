@@ -0,0 +1,180 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+/**
+ * A restricted area's polygon grown by a buffer on every side, answering "is this point inside" and "does this
+ * stroked segment touch it" with distance tests on the polygon's edges rather than by building shapes.
+ * <p>
+ * The buffered polygon is every point inside the polygon (non-zero winding, like {@link java.awt.geom.Path2D})
+ * or within {@code buffer} of its boundary. A segment of half-width {@code r} touches it when the segment comes
+ * within {@code buffer + r} of the polygon or has an end inside it. Distances equal to the limit count as
+ * touching.
+ */
+final class BufferedPolygon {
+
+    // vertices in order; the closing edge from the last vertex back to the first is implied
+    private final double[] xs;
+    private final double[] ys;
+    private final double buffer;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private BufferedPolygon(double[] xs, double[] ys, double buffer) {
+        this.xs = xs;
+        this.ys = ys;
+        this.buffer = buffer;
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            loX = Math.min(loX, xs[i]);
+            loY = Math.min(loY, ys[i]);
+            hiX = Math.max(hiX, xs[i]);
+            hiY = Math.max(hiY, ys[i]);
+        }
+        this.minX = loX - buffer;
+        this.minY = loY - buffer;
+        this.maxX = hiX + buffer;
+        this.maxY = hiY + buffer;
+    }
+
+    /**
+     * @param area   restricted area with at least one vertex
+     * @param buffer distance the polygon is grown by
+     */
+    static BufferedPolygon of(RestrictedArea area, double buffer) {
+        RestrictedArea.vertices[] vertices = area.getVertices();
+        double[] xs = new double[vertices.length];
+        double[] ys = new double[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            xs[i] = vertices[i].getLng();
+            ys[i] = vertices[i].getLat();
+        }
+        return new BufferedPolygon(xs, ys, buffer);
+    }
+
+    double getMinX() {
+        return minX;
+    }
+
+    double getMinY() {
+        return minY;
+    }
+
+    double getMaxX() {
+        return maxX;
+    }
+
+    double getMaxY() {
+        return maxY;
+    }
+
+    double getBuffer() {
+        return buffer;
+    }
+
+    int edgeCount() {
+        return xs.length;
+    }
+
+    // Edge i runs from vertex i - 1 (the last vertex for i = 0) to vertex i
+    double edgeStartX(int i) {
+        return xs[i == 0 ? xs.length - 1 : i - 1];
+    }
+
+    double edgeStartY(int i) {
+        return ys[i == 0 ? ys.length - 1 : i - 1];
+    }
+
+    double edgeEndX(int i) {
+        return xs[i];
+    }
+
+    double edgeEndY(int i) {
+        return ys[i];
+    }
+
+    boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) return false;
+        return windingNumber(x, y) != 0 || distanceSqToEdges(x, y, x, y) <= buffer * buffer;
+    }
+
+    // Whether the segment from (ax, ay) to (bx, by), widened by halfWidth on each side, touches this polygon
+    boolean isTouchedBy(double ax, double ay, double bx, double by, double halfWidth) {
+        double reach = buffer + halfWidth;
+        if (Math.max(ax, bx) < minX - halfWidth || Math.min(ax, bx) > maxX + halfWidth
+                || Math.max(ay, by) < minY - halfWidth || Math.min(ay, by) > maxY + halfWidth) {
+            return false;
+        }
+        // a segment entirely inside the polygon never comes near an edge, but its ends are inside
+        if (windingNumber(ax, ay) != 0 || windingNumber(bx, by) != 0) return true;
+        return distanceSqToEdges(ax, ay, bx, by) <= reach * reach;
+    }
+
+    // Smallest squared distance between the segment (ax, ay)-(bx, by) and any edge; zero if they cross
+    private double distanceSqToEdges(double ax, double ay, double bx, double by) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            best = Math.min(best, segmentDistanceSq(ax, ay, bx, by, xs[j], ys[j], xs[i], ys[i]));
+            if (best == 0) break;
+        }
+        return best;
+    }
+
+    // Non-zero when (x, y) lies inside the polygon under the non-zero winding rule
+    private int windingNumber(double x, double y) {
+        int winding = 0;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            winding += windingCrossing(xs[j], ys[j], xs[i], ys[i], x, y);
+        }
+        return winding;
+    }
+
+    // What the edge (x0, y0)-(x1, y1) adds to the winding number around (x, y): +1 or -1 when it crosses the ray
+    // from (x, y) towards +x going up or down, counting its lower end but not its upper one, otherwise 0
+    static int windingCrossing(double x0, double y0, double x1, double y1, double x, double y) {
+        if (y0 <= y) {
+            if (y1 > y && cross(x0, y0, x1, y1, x, y) > 0) return 1;
+        } else if (y1 <= y && cross(x0, y0, x1, y1, x, y) < 0) {
+            return -1;
+        }
+        return 0;
+    }
+
+    static double segmentDistanceSq(double ax, double ay, double bx, double by,
+                                    double cx, double cy, double dx, double dy) {
+        if (segmentsCross(ax, ay, bx, by, cx, cy, dx, dy)) return 0;
+        double best = pointSegmentDistanceSq(ax, ay, cx, cy, dx, dy);
+        best = Math.min(best, pointSegmentDistanceSq(bx, by, cx, cy, dx, dy));
+        best = Math.min(best, pointSegmentDistanceSq(cx, cy, ax, ay, bx, by));
+        return Math.min(best, pointSegmentDistanceSq(dx, dy, ax, ay, bx, by));
+    }
+
+    static double pointSegmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double vx = bx - ax;
+        double vy = by - ay;
+        double lengthSq = vx * vx + vy * vy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * vx + (py - ay) * vy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax + t * vx - px;
+        double ey = ay + t * vy - py;
+        return ex * ex + ey * ey;
+    }
+
+    // Proper crossing only; touching and collinear overlaps are caught by the endpoint distances, which are then zero
+    private static boolean segmentsCross(double ax, double ay, double bx, double by,
+                                         double cx, double cy, double dx, double dy) {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    // Twice the signed area of (a, b, p): positive when p is left of a->b
+    private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+}
@@ -0,0 +1,40 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.List;
+
+/**
+ * Remaining capacity of each drone of a fleet while one request assigns dispatches to it, kept in a
+ * {@code double[]} indexed by the drone's slot (its position in the fleet list). The drones themselves are never
+ * modified, so the fleet can stay shared between concurrent requests.
+ */
+public final class CapacityLedger {
+
+    private final double[] remaining;
+
+    public CapacityLedger(List<Drone> drones) {
+        remaining = new double[drones.size()];
+        for (int slot = 0; slot < remaining.length; slot++) {
+            Double capacity = drones.get(slot).getCapacity();
+            // a drone without a capacity can carry nothing, NaN fails every comparison
+            remaining[slot] = capacity == null ? Double.NaN : capacity;
+        }
+    }
+
+    /**
+     * Takes {@code amount} from the drone in {@code slot} if it has that much left.
+     *
+     * @return false, leaving the drone's capacity as it was, when it has less than {@code amount} left
+     */
+    public boolean tryConsume(int slot, double amount) {
+        double left = remaining[slot];
+        if (Double.isNaN(left) || Double.compare(left, amount) < 0) return false;
+        remaining[slot] = left - amount;
+        return true;
+    }
+
+    public double remaining(int slot) {
+        return remaining[slot];
+    }
+}
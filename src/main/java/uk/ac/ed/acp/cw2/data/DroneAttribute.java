@@ -0,0 +1,26 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.function.Function;
+
+/**
+ * A queryable drone attribute resolved to its getter once, so reading it for every drone in a query pass involves
+ * no reflection. Attributes the drone does not have resolve to {@link #UNKNOWN}, which reads as null.
+ *
+ * @param name   attribute name as used in queries, e.g. {@code costPerMove}
+ * @param type   declared return type of the getter, or null for an unknown attribute
+ * @param getter compiled getter
+ */
+public record DroneAttribute(String name, Class<?> type, Function<Drone, Object> getter) {
+
+    public static final DroneAttribute UNKNOWN = new DroneAttribute(null, null, d -> null);
+
+    public boolean isKnown() {
+        return type != null;
+    }
+
+    public Object read(Drone d) {
+        return getter.apply(d);
+    }
+}
@@ -0,0 +1,236 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Column-oriented copy of a drone fleet: one primitive array per numeric attribute and one pair of bitsets per
+ * boolean attribute, all indexed by the drone's row (its position in the fleet list). Query conditions are answered
+ * as bitsets of rows, combined with {@code and}/{@code or}/{@code andNot}, and turned into ids only at the end.
+ * <p>
+ * Built once per drone data change (see {@link WorldSnapshot}) and never modified afterwards. Bitsets handed out
+ * are always fresh copies the caller may modify.
+ * <p>
+ * Both kinds of column also count their matches without building a bitset: the sorted numeric index answers how
+ * many rows fall in a range with two binary searches, boolean columns keep their true and false counts. Queries
+ * use these to decide how, and whether, to evaluate each condition.
+ */
+public final class DroneColumns {
+
+    private final List<Drone> drones;
+    private final String[] ids;
+    private final Map<String, NumericColumn> numeric;
+    private final Map<String, BooleanColumn> bool;
+
+    private DroneColumns(List<Drone> drones) {
+        this.drones = List.copyOf(drones);
+        int n = this.drones.size();
+        this.ids = new String[n];
+        for (int row = 0; row < n; row++) ids[row] = this.drones.get(row).getId();
+
+        this.numeric = Map.of(
+                "capacity", new NumericColumn(this.drones, Drone::getCapacity),
+                "maxMoves", new NumericColumn(this.drones, Drone::getMaxMoves),
+                "costPerMove", new NumericColumn(this.drones, Drone::getCostPerMove),
+                "costInitial", new NumericColumn(this.drones, Drone::getCostInitial),
+                "costFinal", new NumericColumn(this.drones, Drone::getCostFinal));
+        this.bool = Map.of(
+                "cooling", new BooleanColumn(this.drones, Drone::getCooling),
+                "heating", new BooleanColumn(this.drones, Drone::getHeating));
+    }
+
+    public static DroneColumns of(List<Drone> drones) {
+        return new DroneColumns(drones == null ? List.of() : drones);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public List<Drone> drones() {
+        return drones;
+    }
+
+    public Drone drone(int row) {
+        return drones.get(row);
+    }
+
+    // Every row set
+    public BitSet all() {
+        BitSet rows = new BitSet(ids.length);
+        rows.set(0, ids.length);
+        return rows;
+    }
+
+    /**
+     * @return the column for a numeric attribute, or null when the attribute is not held column-wise
+     */
+    public NumericColumn numeric(String attributeName) {
+        return attributeName == null ? null : numeric.get(attributeName);
+    }
+
+    /**
+     * @return the column for a boolean attribute, or null when the attribute is not held column-wise
+     */
+    public BooleanColumn bool(String attributeName) {
+        return attributeName == null ? null : bool.get(attributeName);
+    }
+
+    // Ids of the given rows, in row order
+    public String[] ids(BitSet rows) {
+        String[] out = new String[rows.cardinality()];
+        int i = 0;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) out[i++] = ids[row];
+        return out;
+    }
+
+    // Appends the ids of the given rows, in row order
+    public void addIds(BitSet rows, List<String> out) {
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) out.add(ids[row]);
+    }
+
+    /**
+     * One numeric attribute as a {@code double[]}; a missing (null) value is stored as NaN, which no comparison
+     * matches. The rows are also kept sorted by value, so a range condition is two binary searches followed by
+     * setting the bits of one contiguous run of rows.
+     */
+    public static final class NumericColumn {
+
+        private final double[] values;
+        // rows with a value, ascending by value (ties in row order), and their values in the same order
+        private final int[] sortedRows;
+        private final double[] sortedValues;
+
+        private NumericColumn(List<Drone> drones, Function<Drone, ? extends Number> getter) {
+            values = new double[drones.size()];
+            int known = 0;
+            for (int row = 0; row < values.length; row++) {
+                Number v = getter.apply(drones.get(row));
+                values[row] = v == null ? Double.NaN : v.doubleValue();
+                if (!Double.isNaN(values[row])) known++;
+            }
+
+            int[] rows = new int[known];
+            for (int row = 0, i = 0; row < values.length; row++) {
+                if (!Double.isNaN(values[row])) rows[i++] = row;
+            }
+            sortedRows = sortByValue(rows, values);
+            sortedValues = new double[known];
+            for (int i = 0; i < known; i++) sortedValues[i] = values[sortedRows[i]];
+        }
+
+        public double value(int row) {
+            return values[row];
+        }
+
+        /**
+         * Rows whose value lies between {@code low} and {@code high}; use infinities for an open end.
+         *
+         * @return a fresh bitset, empty when {@code low > high}
+         */
+        public BitSet range(double low, boolean lowInclusive, double high, boolean highInclusive) {
+            int from = lowInclusive ? firstNotBelow(low) : firstAbove(low);
+            int to = highInclusive ? firstAbove(high) : firstNotBelow(high);
+            BitSet rows = new BitSet(values.length);
+            for (int i = from; i < to; i++) rows.set(sortedRows[i]);
+            return rows;
+        }
+
+        // Number of rows range(...) would return, without building the bitset
+        public int count(double low, boolean lowInclusive, double high, boolean highInclusive) {
+            int from = lowInclusive ? firstNotBelow(low) : firstAbove(low);
+            int to = highInclusive ? firstAbove(high) : firstNotBelow(high);
+            return Math.max(0, to - from);
+        }
+
+        public BitSet equalTo(double v) {
+            return range(v, true, v, true);
+        }
+
+        public BitSet greaterThan(double v) {
+            return range(v, false, Double.POSITIVE_INFINITY, true);
+        }
+
+        public BitSet lessThan(double v) {
+            return range(Double.NEGATIVE_INFINITY, true, v, false);
+        }
+
+        // First sorted position whose value is >= v
+        private int firstNotBelow(double v) {
+            int lo = 0, hi = sortedValues.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sortedValues[mid] < v) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // First sorted position whose value is > v
+        private int firstAbove(double v) {
+            int lo = 0, hi = sortedValues.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sortedValues[mid] <= v) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // Stable bottom-up merge sort of rows by their value, on primitive arrays
+        private static int[] sortByValue(int[] rows, double[] values) {
+            int[] src = rows;
+            int[] dst = new int[rows.length];
+            for (int width = 1; width < rows.length; width *= 2) {
+                for (int lo = 0; lo < rows.length; lo += 2 * width) {
+                    int mid = Math.min(lo + width, rows.length);
+                    int hi = Math.min(lo + 2 * width, rows.length);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi) dst[k++] = values[src[j]] < values[src[i]] ? src[j++] : src[i++];
+                    while (i < mid) dst[k++] = src[i++];
+                    while (j < hi) dst[k++] = src[j++];
+                }
+                int[] t = src;
+                src = dst;
+                dst = t;
+            }
+            return src;
+        }
+    }
+
+    /**
+     * One boolean attribute as two bitsets, rows that are true and rows that are false; a missing (null) value is
+     * in neither.
+     */
+    public static final class BooleanColumn {
+
+        private final BitSet trueRows;
+        private final BitSet falseRows;
+        private final int trueCount;
+        private final int falseCount;
+
+        private BooleanColumn(List<Drone> drones, Function<Drone, Boolean> getter) {
+            trueRows = new BitSet(drones.size());
+            falseRows = new BitSet(drones.size());
+            for (int row = 0; row < drones.size(); row++) {
+                Boolean v = getter.apply(drones.get(row));
+                if (v == null) continue;
+                (v ? trueRows : falseRows).set(row);
+            }
+            trueCount = trueRows.cardinality();
+            falseCount = falseRows.cardinality();
+        }
+
+        public BitSet equalTo(boolean v) {
+            return (BitSet) (v ? trueRows : falseRows).clone();
+        }
+
+        public int count(boolean v) {
+            return v ? trueCount : falseCount;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.BitSet;
+
+/**
+ * One compiled query condition on a drone. Values are parsed when the predicate is built, so testing a drone
+ * only reads its attribute and compares primitives.
+ * <p>
+ * {@link #select(DroneColumns)} answers the condition for a whole fleet at once; conditions on attributes held in
+ * columns override it to work on the primitive arrays and bitsets, everything else falls back to testing each row.
+ * Those conditions also override {@link #count(DroneColumns)}, so a query can tell how many rows a condition
+ * matches before deciding whether to select it, or only test the few rows it still needs.
+ */
+@FunctionalInterface
+public interface DronePredicate {
+
+    DronePredicate NONE = new DronePredicate() {
+        @Override
+        public boolean test(Drone d) {
+            return false;
+        }
+
+        @Override
+        public BitSet select(DroneColumns columns) {
+            return new BitSet(columns.size());
+        }
+
+        @Override
+        public int count(DroneColumns columns) {
+            return 0;
+        }
+    };
+
+    DronePredicate ALL = new DronePredicate() {
+        @Override
+        public boolean test(Drone d) {
+            return true;
+        }
+
+        @Override
+        public BitSet select(DroneColumns columns) {
+            return columns.all();
+        }
+
+        @Override
+        public int count(DroneColumns columns) {
+            return columns.size();
+        }
+    };
+
+    boolean test(Drone d);
+
+    /**
+     * @return a fresh bitset of the rows of {@code columns} whose drone matches
+     */
+    default BitSet select(DroneColumns columns) {
+        BitSet rows = new BitSet(columns.size());
+        for (int row = 0; row < columns.size(); row++) {
+            if (test(columns.drone(row))) rows.set(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @return a fresh bitset of those of {@code rows} whose drone matches, testing only those rows
+     */
+    default BitSet select(DroneColumns columns, BitSet rows) {
+        BitSet matched = new BitSet(columns.size());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (test(columns.drone(row))) matched.set(row);
+        }
+        return matched;
+    }
+
+    /**
+     * @return how many rows of {@code columns} match, or -1 when that cannot be told without testing every row
+     */
+    default int count(DroneColumns columns) {
+        return -1;
+    }
+
+    default DronePredicate negate() {
+        if (this == NONE) return ALL;
+        if (this == ALL) return NONE;
+        DronePredicate self = this;
+        return new DronePredicate() {
+            @Override
+            public boolean test(Drone d) {
+                return !self.test(d);
+            }
+
+            @Override
+            public BitSet select(DroneColumns columns) {
+                BitSet rows = columns.all();
+                rows.andNot(self.select(columns));
+                return rows;
+            }
+
+            @Override
+            public DronePredicate negate() {
+                return self;
+            }
+        };
+    }
+}
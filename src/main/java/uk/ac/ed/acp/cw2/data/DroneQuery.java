@@ -0,0 +1,321 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.dto.QueryRequest;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A list of {@link QueryRequest}s compiled into typed predicates. Each request is validated and its value parsed
+ * once, into the attribute's own type, so evaluating the query over a fleet does no parsing or reflection.
+ * <p>
+ * Conditions on attributes held in {@link DroneColumns} are answered with the columns' arrays and bitsets.
+ * Semantics are those of the original per-drone evaluation: a drone matches the query when it matches any
+ * condition, and ids come out grouped by the first condition they matched, in fleet order within each group.
+ * {@code >}, {@code <}, {@code >=}, {@code <=} and {@code between} (inclusive, value {@code "low,high"}) only ever
+ * match numeric attributes, {@code =} never matches an unknown attribute (so {@code !=} always does), and an
+ * unknown operator matches nothing. Numeric attributes are also indexed by value in {@link DroneColumns}, so range
+ * conditions resolve by binary search.
+ * <p>
+ * Compiled queries are values: conditions compare by attribute, operator and parsed value, conditions that can
+ * never add a drone (ones matching nothing, repeats of an earlier condition, anything after one matching
+ * everything) are dropped, and two queries are equal exactly when they select the same ids in the same order.
+ * {@code [capacity = 5, capacity = 5.0, name = x]} is therefore equal to {@code [capacity = 5, name = x]}, but
+ * not to {@code [name = x, capacity = 5]}, whose ids come out grouped the other way round.
+ */
+public final class DroneQuery {
+
+    // Inclusive range on a numeric attribute, value given as "low,high"
+    public static final String BETWEEN = "between";
+
+    private final List<DronePredicate> predicates;
+
+    private DroneQuery(List<DronePredicate> predicates) {
+        this.predicates = predicates;
+    }
+
+    /**
+     * Compiles every request of a query.
+     *
+     * @param requests conditions as sent by the client
+     * @return the compiled query
+     * @throws IllegalArgumentException when a request is missing or its value cannot be parsed as the attribute's type
+     */
+    public static DroneQuery compile(List<QueryRequest> requests) {
+        Set<DronePredicate> predicates = new LinkedHashSet<>();
+        boolean complete = false;
+        for (QueryRequest q : requests) {
+            if (q == null) throw new IllegalArgumentException("Query condition is null");
+            // every condition is still compiled, so a bad value is rejected wherever it appears
+            DronePredicate predicate = compile(q.getAttribute(), q.getOperator(), q.getValue());
+            if (complete || predicate == DronePredicate.NONE) continue;
+            predicates.add(predicate);
+            complete = predicate == DronePredicate.ALL;
+        }
+        return new DroneQuery(List.copyOf(predicates));
+    }
+
+    /**
+     * Compiles one condition.
+     *
+     * @throws IllegalArgumentException when {@code value} cannot be parsed as the attribute's type
+     */
+    public static DronePredicate compile(String attributeName, String operator, String value) {
+        DroneAttribute attribute = DynamicQueries.attribute(attributeName);
+        Class<?> type = attribute.type();
+
+        if (isNumeric(type)) {
+            String op = operator == null ? "" : operator;
+            if (op.equals(BETWEEN)) {
+                String[] bounds = value == null ? new String[0] : value.split(",", -1);
+                if (bounds.length != 2) {
+                    throw new IllegalArgumentException("Value for 'between' on " + attributeName + " must be 'low,high'");
+                }
+                return new NumericCondition(attribute, Comparison.BETWEEN,
+                        parseNumber(attributeName, bounds[0].trim()), parseNumber(attributeName, bounds[1].trim()));
+            }
+            double v = parseNumber(attributeName, value);
+            return switch (op) {
+                case "=" -> new NumericCondition(attribute, Comparison.EQ, v, v);
+                case "!=" -> not(new NumericCondition(attribute, Comparison.EQ, v, v));
+                case ">" -> new NumericCondition(attribute, Comparison.GT, v, v);
+                case "<" -> new NumericCondition(attribute, Comparison.LT, v, v);
+                case ">=" -> new NumericCondition(attribute, Comparison.GE, v, v);
+                case "<=" -> new NumericCondition(attribute, Comparison.LE, v, v);
+                default -> DronePredicate.NONE;
+            };
+        }
+
+        DronePredicate equal;
+        if (type == Boolean.class || type == boolean.class) {
+            equal = new BooleanCondition(attribute, Boolean.parseBoolean(value));
+        } else if (type == String.class) {
+            equal = value == null ? DronePredicate.NONE : new StringCondition(attribute, value);
+        } else {
+            // unknown attribute, or one that is not comparable to a value
+            equal = DronePredicate.NONE;
+        }
+        if (Objects.equals(operator, "=")) return equal;
+        if (Objects.equals(operator, "!=")) return not(equal);
+        return DronePredicate.NONE;
+    }
+
+    // DronePredicate.negate() would do, but its result has no value equality
+    private static DronePredicate not(DronePredicate predicate) {
+        if (predicate == DronePredicate.NONE) return DronePredicate.ALL;
+        if (predicate == DronePredicate.ALL) return DronePredicate.NONE;
+        return new Negated(predicate);
+    }
+
+    /**
+     * Evaluates the query over the drones, keeping the order described on the class.
+     *
+     * @return ids of the matching drones
+     */
+    public String[] matchingIds(List<Drone> drones) {
+        return matchingIds(DroneColumns.of(drones));
+    }
+
+    /**
+     * Evaluates the query over a columnar fleet: each condition selects a bitset of rows, rows already matched by
+     * an earlier condition are masked out, and ids are materialised once per condition.
+     *
+     * @return ids of the matching drones, in the order described on the class
+     */
+    public String[] matchingIds(DroneColumns columns) {
+        return matchingIds(columns, null);
+    }
+
+    /**
+     * Same as {@link #matchingIds(DroneColumns)}, but takes each condition's rows from {@code selected} when an
+     * earlier query already selected them, so queries evaluated together share their common conditions.
+     * <p>
+     * Each condition only ever contributes rows no earlier condition matched, so before touching the fleet its
+     * match count (see {@link DronePredicate#count(DroneColumns)}) decides what to do: a condition matching no row
+     * is skipped, one matching every row takes all rows still left and ends the query, and one matching more rows
+     * than are still left is tested on just those rows instead of being selected from its index. When selections
+     * are shared, conditions are always selected over the whole fleet, as a later query may reuse them.
+     *
+     * @param selected rows per condition for these columns, filled in as conditions are selected; null to not share
+     */
+    public String[] matchingIds(DroneColumns columns, Map<DronePredicate, BitSet> selected) {
+        BitSet remaining = columns.all();
+        int left = columns.size();
+        List<String> ids = new ArrayList<>();
+        for (DronePredicate predicate : predicates) {
+            if (left == 0) break;
+            int count = predicate.count(columns);
+            if (count == 0) continue;
+
+            BitSet matched;
+            if (count == columns.size()) {
+                matched = (BitSet) remaining.clone();
+                // every row, so recording it for the rest of the batch costs nothing
+                if (selected != null) selected.putIfAbsent(predicate, columns.all());
+            } else if (selected != null && selected.containsKey(predicate)) {
+                matched = (BitSet) selected.get(predicate).clone();
+            } else if (selected == null && (count < 0 || left < count)) {
+                matched = predicate.select(columns, remaining);
+            } else {
+                matched = predicate.select(columns);
+                if (selected != null) selected.put(predicate, (BitSet) matched.clone());
+            }
+            left -= addMatches(columns, matched, remaining, ids);
+        }
+        return ids.toArray(new String[0]);
+    }
+
+    // Returns how many rows were newly matched
+    private static int addMatches(DroneColumns columns, BitSet matched, BitSet remaining, List<String> ids) {
+        matched.and(remaining);
+        int before = ids.size();
+        columns.addIds(matched, ids);
+        remaining.andNot(matched);
+        return ids.size() - before;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DroneQuery other && predicates.equals(other.predicates);
+    }
+
+    @Override
+    public int hashCode() {
+        return predicates.hashCode();
+    }
+
+    private enum Comparison {
+        EQ, GT, LT, GE, LE, BETWEEN;
+
+        // Bounds of the matching values as a range: the upper bound is high for BETWEEN, low otherwise
+        double lower(double low) {
+            return this == LT || this == LE ? Double.NEGATIVE_INFINITY : low;
+        }
+
+        boolean lowerInclusive() {
+            return this != GT;
+        }
+
+        double upper(double low, double high) {
+            return switch (this) {
+                case EQ, LT, LE -> low;
+                case GT, GE -> Double.POSITIVE_INFINITY;
+                case BETWEEN -> high;
+            };
+        }
+
+        boolean upperInclusive() {
+            return this != LT;
+        }
+
+        boolean matches(double x, double low, double high) {
+            return switch (this) {
+                case EQ -> x == low;
+                case GT -> x > low;
+                case LT -> x < low;
+                case GE -> x >= low;
+                case LE -> x <= low;
+                case BETWEEN -> x >= low && x <= high;
+            };
+        }
+    }
+
+    // Drone attributes are boxed, so a missing (null) value is not a Number and never compares.
+    // Every comparison but BETWEEN only uses low.
+    private record NumericCondition(DroneAttribute attribute, Comparison comparison, double low, double high)
+            implements DronePredicate {
+        @Override
+        public boolean test(Drone d) {
+            return attribute.read(d) instanceof Number n && comparison.matches(n.doubleValue(), low, high);
+        }
+
+        @Override
+        public BitSet select(DroneColumns columns) {
+            DroneColumns.NumericColumn column = columns.numeric(attribute.name());
+            if (column == null) return DronePredicate.super.select(columns);
+            return column.range(comparison.lower(low), comparison.lowerInclusive(),
+                    comparison.upper(low, high), comparison.upperInclusive());
+        }
+
+        @Override
+        public int count(DroneColumns columns) {
+            DroneColumns.NumericColumn column = columns.numeric(attribute.name());
+            if (column == null) return -1;
+            return column.count(comparison.lower(low), comparison.lowerInclusive(),
+                    comparison.upper(low, high), comparison.upperInclusive());
+        }
+    }
+
+    private record BooleanCondition(DroneAttribute attribute, boolean v) implements DronePredicate {
+        @Override
+        public boolean test(Drone d) {
+            return attribute.read(d) instanceof Boolean b && b == v;
+        }
+
+        @Override
+        public BitSet select(DroneColumns columns) {
+            DroneColumns.BooleanColumn column = columns.bool(attribute.name());
+            return column == null ? DronePredicate.super.select(columns) : column.equalTo(v);
+        }
+
+        @Override
+        public int count(DroneColumns columns) {
+            DroneColumns.BooleanColumn column = columns.bool(attribute.name());
+            return column == null ? -1 : column.count(v);
+        }
+    }
+
+    private record StringCondition(DroneAttribute attribute, String v) implements DronePredicate {
+        @Override
+        public boolean test(Drone d) {
+            return v.equals(attribute.read(d));
+        }
+    }
+
+    private record Negated(DronePredicate predicate) implements DronePredicate {
+        @Override
+        public boolean test(Drone d) {
+            return !predicate.test(d);
+        }
+
+        @Override
+        public BitSet select(DroneColumns columns) {
+            BitSet rows = columns.all();
+            rows.andNot(predicate.select(columns));
+            return rows;
+        }
+
+        @Override
+        public int count(DroneColumns columns) {
+            int matched = predicate.count(columns);
+            return matched < 0 ? -1 : columns.size() - matched;
+        }
+
+        @Override
+        public DronePredicate negate() {
+            return predicate;
+        }
+    }
+
+    private static boolean isNumeric(Class<?> type) {
+        return type != null && (Number.class.isAssignableFrom(type)
+                || (type.isPrimitive() && type != boolean.class && type != char.class && type != void.class));
+    }
+
+    // Accepts exactly what BigDecimal does (no NaN, Infinity or hex), as the per-drone comparison used to
+    private static double parseNumber(String attributeName, String value) {
+        if (value == null) throw new IllegalArgumentException("No value given for numeric attribute " + attributeName);
+        try {
+            return new BigDecimal(value).doubleValue();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value '" + value + "' is not a number for attribute " + attributeName);
+        }
+    }
+}
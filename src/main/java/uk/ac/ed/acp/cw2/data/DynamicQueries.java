@@ -2,24 +2,78 @@ package uk.ac.ed.acp.cw2.data;
 
 import uk.ac.ed.acp.cw2.entity.Drone;
 
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 public class DynamicQueries {
+
+    // Every public no-arg getter of Drone (getXxx / isXxx, including getClass), compiled once by method name
+    private static final Map<String, DroneAttribute> GETTERS = compileGetters();
+
     public static Object readProperty(Drone d, String propertyName) {
-        Class<?> cls = d.getClass();
+        return attribute(propertyName).read(d);
+    }
+
+    /**
+     * Resolves an attribute name to its compiled getter: getXxx() if the drone has one, otherwise isXxx().
+     * Resolve once per query and call {@link DroneAttribute#read(Drone)} per drone.
+     *
+     * @param propertyName attribute name, e.g. {@code capacity}
+     * @return the attribute, or {@link DroneAttribute#UNKNOWN} when the drone has no such getter
+     */
+    public static DroneAttribute attribute(String propertyName) {
+        if (propertyName == null || propertyName.isEmpty()) return DroneAttribute.UNKNOWN;
         String cap = propertyName.substring(0, 1).toUpperCase() + propertyName.substring(1);
+        DroneAttribute getter = GETTERS.get("get" + cap);
+        if (getter == null) getter = GETTERS.get("is" + cap);
+        return getter == null ? DroneAttribute.UNKNOWN : getter;
+    }
 
-        // try getter methods: getXxx() then isXxx()
+    private static Map<String, DroneAttribute> compileGetters() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Map<String, DroneAttribute> getters = new HashMap<>();
+        for (Method m : Drone.class.getMethods()) {
+            String name = m.getName();
+            if (m.getParameterCount() != 0 || Modifier.isStatic(m.getModifiers()) || m.getReturnType() == void.class) continue;
+            if (!name.startsWith("get") && !name.startsWith("is")) continue;
+            String attr = name.substring(name.startsWith("get") ? 3 : 2);
+            if (attr.isEmpty()) continue;
+            attr = Character.toLowerCase(attr.charAt(0)) + attr.substring(1);
+            getters.put(name, new DroneAttribute(attr, m.getReturnType(), compile(lookup, m)));
+        }
+        return Map.copyOf(getters);
+    }
+
+    // A lambda class per getter, so a read is a plain interface call the JIT can inline
+    @SuppressWarnings("unchecked")
+    private static Function<Drone, Object> compile(MethodHandles.Lookup lookup, Method getter) {
+        MethodHandle handle;
         try {
-            Method m = cls.getMethod("get" + cap);
-            return m.invoke(d);
-        } catch (Exception ignored) {}
+            handle = lookup.unreflect(getter);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access " + getter, e);
+        }
         try {
-            Method m = cls.getMethod("is" + cap);
-            return m.invoke(d);
-        } catch (Exception ignored) {}
-        return null;
+            return (Function<Drone, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                            MethodType.methodType(Function.class),
+                            MethodType.methodType(Object.class, Object.class),
+                            handle,
+                            MethodType.methodType(Object.class, Drone.class))
+                    .getTarget().invokeExact();
+        } catch (Throwable t) {
+            // still reflection-free, just not inlined as well
+            return MethodHandleProxies.asInterfaceInstance(Function.class,
+                    handle.asType(MethodType.methodType(Object.class, Object.class)));
+        }
     }
 
     public static boolean attributeEquals(Object attrVal, String stringValue) {
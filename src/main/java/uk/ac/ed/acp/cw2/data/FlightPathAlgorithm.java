@@ -6,11 +6,6 @@ import uk.ac.ed.acp.cw2.dto.LngLat;
 import uk.ac.ed.acp.cw2.entity.RestrictedArea;
 
 import java.util.*;
-import java.awt.geom.Path2D;
-import java.awt.BasicStroke;
-import java.awt.geom.Area;
-import java.awt.Shape;
-import java.awt.geom.Line2D;
 
 public class FlightPathAlgorithm {
     private static final Logger logger = LoggerFactory.getLogger(FlightPathAlgorithm.class);
@@ -18,7 +13,48 @@ public class FlightPathAlgorithm {
     // Single step size used for grid snapping and neighbor expansion
     private static final double STEP = 1.5E-4;
 
+    // Restricted areas, and moves, are kept half a step clear of: a move is blocked when it comes within one step
+    private static final double BUFFER = STEP / 2;
+
+    // Side of the buckets the polygon edges are indexed in
+    private static final double INDEX_BUCKET = 4 * STEP;
+
+    // Cells around each buffered polygon's bounds that are rasterized; a move reaches at most one cell and a half away
+    private static final int RASTER_MARGIN = 3;
+
+    // Cell offsets of the 16 compass directions (multiples of 22.5 degrees), one step long and snapped to the grid.
+    // No offset is near half a cell, so snapping does not depend on the cell moved from. Several directions snap
+    // to the same neighbouring cell; FIRST_SAME_CELL[i] is the first direction reaching direction i's cell.
+    private static final int NEIGHBOURS = 16;
+    private static final int[] NEIGHBOUR_DX = new int[NEIGHBOURS];
+    private static final int[] NEIGHBOUR_DY = new int[NEIGHBOURS];
+    private static final int[] FIRST_SAME_CELL = new int[NEIGHBOURS];
+
+    static {
+        for (int i = 0; i < NEIGHBOURS; i++) {
+            double angle = Math.toRadians(i * 22.5);
+            NEIGHBOUR_DX[i] = (int) Math.round(Math.cos(angle));
+            NEIGHBOUR_DY[i] = (int) Math.round(Math.sin(angle));
+            FIRST_SAME_CELL[i] = i;
+            for (int j = 0; j < i; j++) {
+                if (NEIGHBOUR_DX[j] == NEIGHBOUR_DX[i] && NEIGHBOUR_DY[j] == NEIGHBOUR_DY[i]) {
+                    FIRST_SAME_CELL[i] = j;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Plans a path around {@code restrictedAreas}, preparing them for this one call. Callers planning several legs
+     * around the same areas should {@link #prepare} them once and use {@link #findPath(LngLat, LngLat,
+     * RestrictedAirspace)} instead.
+     */
     public static List<LngLat> findPath(LngLat start, LngLat goal, List<RestrictedArea> restrictedAreas) {
+        return findPath(start, goal, prepare(restrictedAreas));
+    }
+
+    public static List<LngLat> findPath(LngLat start, LngLat goal, RestrictedAirspace airspace) {
 
 
         // A simple grid-based A* implementation: snap coordinates to step grid, search 16-direction neighbors.
@@ -30,37 +66,36 @@ public class FlightPathAlgorithm {
             return List.of(start, goal);
         }
 
-        // Precompute buffered Areas for restricted areas once per call
-        final List<Area> bufferedAreas = buildBufferedAreas(restrictedAreas);
-
         // default segments for straight-line fallback
         int segments = (int) (Distance.calculateEuclideanDistance(start, goal) / STEP);
         if (segments < 1) segments = 1;
 
         // If there are no restricted areas, just do a straight line
-        if (bufferedAreas.isEmpty()) {
+        if (airspace.isEmpty()) {
             return getStraightlinePath(start, goal, segments);
         }
 
-        Node startNode = Node.fromLngLat(start);
-        Node goalNode = Node.fromLngLat(goal);
+        int startX = gridIndex(start.getLng());
+        int startY = gridIndex(start.getLat());
+        int goalX = gridIndex(goal.getLng());
+        int goalY = gridIndex(goal.getLat());
 
         // Sample along the straight line to see if it intersects any buffered area.
         boolean intersects = false;
         int samples = segments;
-        Node prev = startNode;
+        int prevX = startX;
+        int prevY = startY;
         for (int s = 1; s <= samples; s++) {
             double t = (double) s / samples;
-            double ix = start.getLng() + (goal.getLng() - start.getLng()) * t;
-            double iy = start.getLat() + (goal.getLat() - start.getLat()) * t;
-            Node current = new Node(ix, iy);
+            int ix = gridIndex(start.getLng() + (goal.getLng() - start.getLng()) * t);
+            int iy = gridIndex(start.getLat() + (goal.getLat() - start.getLat()) * t);
 
-            if (isInsideAnyArea(current, bufferedAreas) ||
-                isSegmentIntersectAnyArea(prev, current, bufferedAreas)) {
+            if (isBlocked(airspace, ix, iy) || isMoveBlocked(airspace, prevX, prevY, ix, iy)) {
                 intersects = true;
                 break;
             }
-            prev = current;
+            prevX = ix;
+            prevY = iy;
         }
         if (!intersects) {
             return getStraightlinePath(start, goal, segments);
@@ -71,19 +106,10 @@ public class FlightPathAlgorithm {
         double maxX = Math.max(start.getLng(), goal.getLng());
         double minY = Math.min(start.getLat(), goal.getLat());
         double maxY = Math.max(start.getLat(), goal.getLat());
-        if (restrictedAreas != null) {
-            for (RestrictedArea ra : restrictedAreas) {
-                if (ra == null || ra.getVertices() == null) continue;
-                for (int i = 0; i < ra.getVertices().length; i++) {
-                    RestrictedArea.vertices v = ra.getVertices()[i];
-                    if (v == null) continue;
-                    minX = Math.min(minX, v.getLng());
-                    maxX = Math.max(maxX, v.getLng());
-                    minY = Math.min(minY, v.getLat());
-                    maxY = Math.max(maxY, v.getLat());
-                }
-            }
-        }
+        minX = Math.min(minX, airspace.minX());
+        maxX = Math.max(maxX, airspace.maxX());
+        minY = Math.min(minY, airspace.minY());
+        maxY = Math.max(maxY, airspace.maxY());
         // add padding of 20 steps around all relevant coordinates
         double padding = 20 * STEP;
         minX -= padding;
@@ -91,24 +117,42 @@ public class FlightPathAlgorithm {
         minY -= padding;
         maxY += padding;
 
-        PriorityQueue<Node> open = new PriorityQueue<>(Comparator.comparingDouble(n -> n.f));
-        Map<Node, Node> cameFrom = new HashMap<>();
-        Map<Node, Double> gScore = new HashMap<>();
-        Set<Node> closed = new HashSet<>();
+        // Search state lives in primitive arrays indexed by node slot; slots are handed out as cells are reached.
+        // The arrays belong to this thread and are reused by its next search.
+        SearchState state = SearchState.forCurrentThread();
+        try {
+            return search(state, goal, startX, startY, goalX, goalY, airspace, minX, maxX, minY, maxY);
+        } finally {
+            state.release();
+        }
+    }
+
+    private static List<LngLat> search(SearchState state, LngLat goal,
+                                       int startX, int startY, int goalX, int goalY, RestrictedAirspace airspace,
+                                       double minX, double maxX, double minY, double maxY) {
+        double goalLng = goalX * STEP;
+        double goalLat = goalY * STEP;
 
-        open.add(startNode);
-        gScore.put(startNode, 0.0);
+        // open set ordered by estimated total cost; a cheaper route to a queued cell just moves it up
+        IndexedMinHeap open = state.open;
+        int startSlot = state.slotOf(startX, startY);
+        state.g[startSlot] = 0.0;
+        open.push(startSlot, 0.0);
 
         int maxIterations = 200000;
         int iterations = 0;
 
         while (!open.isEmpty() && iterations++ < maxIterations) {
-            Node current = open.poll();
+            int current = open.poll();
+            int cx = state.gx[current];
+            int cy = state.gy[current];
+            double x = cx * STEP;
+            double y = cy * STEP;
 
             // consider goal reached if the current node equals the goal node (grid equality)
             // OR if it is within one step of the goal
-            if (current.equals(goalNode) || current.distanceTo(goalNode) <= STEP) {
-                List<LngLat> path = reconstructPath(cameFrom, current);
+            if ((cx == goalX && cy == goalY) || Math.hypot(x - goalLng, y - goalLat) <= STEP) {
+                List<LngLat> path = reconstructPath(state, current);
                 // ensure the exact goal coordinates are the final point in the path
                 if (path.isEmpty() ||
                         Math.hypot(path.get(path.size() - 1).getLng() - goal.getLng(),
@@ -118,33 +162,35 @@ public class FlightPathAlgorithm {
                 return path;
             }
 
-            closed.add(current);
+            state.closed[current] = true;
+            int blocked = blockedDirections(airspace, cx, cy);
+
+            // 16 compass directions, snapped to the grid; directions landing on the same cell are only tried once
+            for (int i = 0; i < NEIGHBOURS; i++) {
+                if (FIRST_SAME_CELL[i] != i) continue;
+                int nx = cx + NEIGHBOUR_DX[i];
+                int ny = cy + NEIGHBOUR_DY[i];
+                double neighbourX = nx * STEP;
+                double neighbourY = ny * STEP;
 
-            for (Node neighbor : current.neighbors()) {
                 // enforce bounding box
-                if (neighbor.x < minX || neighbor.x > maxX || neighbor.y < minY || neighbor.y > maxY) {
+                if (neighbourX < minX || neighbourX > maxX || neighbourY < minY || neighbourY > maxY) {
                     continue;
                 }
 
-                if (closed.contains(neighbor)) continue;
+                int existing = state.find(nx, ny);
+                if (existing >= 0 && state.closed[existing]) continue;
 
-                // collision checks: skip neighbors that collide with any buffered Area
-                if (isInsideAnyArea(neighbor, bufferedAreas) ||
-                    isSegmentIntersectAnyArea(current, neighbor, bufferedAreas)) {
-                    continue;
-                }
+                // collision checks: skip neighbors inside, or reached through, any buffered area
+                if ((blocked & (1 << i)) != 0) continue;
 
-                double tentativeG = gScore.getOrDefault(current, Double.POSITIVE_INFINITY) + current.distanceTo(neighbor);
-                double existingG = gScore.getOrDefault(neighbor, Double.POSITIVE_INFINITY);
+                double tentativeG = state.g[current] + Math.hypot(x - neighbourX, y - neighbourY);
+                double existingG = existing >= 0 ? state.g[existing] : Double.POSITIVE_INFINITY;
                 if (tentativeG < existingG) {
-                    cameFrom.put(neighbor, current);
-                    gScore.put(neighbor, tentativeG);
-                    neighbor.g = tentativeG;
-                    neighbor.h = neighbor.distanceTo(goalNode);
-                    neighbor.f = neighbor.g + neighbor.h;
-                    // add to open if not present (or re-add to update priority)
-                    open.remove(neighbor);
-                    open.add(neighbor);
+                    int neighbour = existing >= 0 ? existing : state.slotOf(nx, ny);
+                    state.parent[neighbour] = current;
+                    state.g[neighbour] = tentativeG;
+                    open.push(neighbour, tentativeG + Math.hypot(neighbourX - goalLng, neighbourY - goalLat));
                 }
             }
         }
@@ -164,119 +210,212 @@ public class FlightPathAlgorithm {
         return pts;
     }
 
-    private static List<LngLat> reconstructPath(Map<Node, Node> cameFrom, Node current) {
-        LinkedList<LngLat> path = new LinkedList<>();
-        Node c = current;
-        while (c != null) {
-            path.addFirst(LngLat.builder().lng(c.x).lat(c.y).build());
-            c = cameFrom.get(c);
+    // Cells from the start to current, with room left for the exact goal to be appended
+    private static List<LngLat> reconstructPath(SearchState state, int current) {
+        int length = 0;
+        for (int c = current; c >= 0; c = state.parent[c]) {
+            state.path[length++] = c;
+        }
+        List<LngLat> path = new ArrayList<>(length + 1);
+        for (int i = length - 1; i >= 0; i--) {
+            int c = state.path[i];
+            path.add(LngLat.builder().lng(state.gx[c] * STEP).lat(state.gy[c] * STEP).build());
         }
         return path;
     }
 
-    // Build buffered Areas once per call to avoid repeated Path2D/Area creation
-    private static List<Area> buildBufferedAreas(List<RestrictedArea> restrictedAreas) {
-        List<Area> areas = new ArrayList<>();
-        if (restrictedAreas == null) return areas;
-        for (RestrictedArea ra : restrictedAreas) {
-            if (ra == null || ra.getVertices() == null || ra.getVertices().length == 0) continue;
-            Path2D.Double poly = new Path2D.Double();
-            poly.moveTo(ra.getVertices()[0].getLng(), ra.getVertices()[0].getLat());
-            for (int i = 1; i < ra.getVertices().length; i++) {
-                poly.lineTo(ra.getVertices()[i].getLng(), ra.getVertices()[i].getLat());
+    /**
+     * Prepares restricted areas for {@link #findPath(LngLat, LngLat, RestrictedAirspace)}: buffers, indexes and
+     * rasterizes them. The result does not change if the areas are modified later.
+     *
+     * @param restrictedAreas areas to keep clear of, may be null
+     */
+    public static RestrictedAirspace prepare(List<RestrictedArea> restrictedAreas) {
+        List<BufferedPolygon> polygons = buildBufferedPolygons(restrictedAreas);
+        RestrictedAreaIndex index = new RestrictedAreaIndex(polygons, INDEX_BUCKET, BUFFER);
+
+        // the search box spans every vertex
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        if (restrictedAreas != null) {
+            for (RestrictedArea ra : restrictedAreas) {
+                if (ra == null || ra.getVertices() == null) continue;
+                for (RestrictedArea.vertices v : ra.getVertices()) {
+                    if (v == null) continue;
+                    minX = Math.min(minX, v.getLng());
+                    maxX = Math.max(maxX, v.getLng());
+                    minY = Math.min(minY, v.getLat());
+                    maxY = Math.max(maxY, v.getLat());
+                }
             }
-            poly.closePath();
-
-            // Using BasicStroke to add a buffer the size of a step around the polygon like how the width of a pen
-            // will give a slight buffer to a shape
-            Area area = new Area(poly);
-            float strokeWidth = (float) STEP;
-            BasicStroke stroke = new BasicStroke(strokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
-            Shape stroked = stroke.createStrokedShape(poly);
-            area.add(new Area(stroked));
-            areas.add(area);
         }
-        return areas;
+        return new RestrictedAirspace(polygons, index, rasterize(polygons, index), minX, minY, maxX, maxY);
     }
 
-    private static boolean isInsideAnyArea(Node p, List<Area> areas) {
-        if (areas == null || areas.isEmpty()) return false;
-        for (Area a : areas) {
-            if (a != null && a.contains(p.x, p.y)) return true;
+    // Passability of the cells around each polygon, as the search would otherwise work it out cell by cell
+    private static PassabilityGrid rasterize(List<BufferedPolygon> polygons, RestrictedAreaIndex index) {
+        List<int[]> regions = new ArrayList<>();
+        for (BufferedPolygon polygon : polygons) {
+            regions.add(new int[]{
+                    (int) Math.floor(polygon.getMinX() / STEP) - RASTER_MARGIN,
+                    (int) Math.floor(polygon.getMinY() / STEP) - RASTER_MARGIN,
+                    (int) Math.ceil(polygon.getMaxX() / STEP) + RASTER_MARGIN,
+                    (int) Math.ceil(polygon.getMaxY() / STEP) + RASTER_MARGIN});
         }
-        return false;
+        PassabilityGrid grid = PassabilityGrid.build(regions,
+                (x, y) -> isInsideAnyArea(x * STEP, y * STEP, index),
+                (x, y) -> computeBlockedDirections(x, y, index));
+        if (grid == null) {
+            logger.warn("Restricted areas span more than {} grid cells; checking collisions without a raster",
+                    PassabilityGrid.MAX_CELLS);
+        }
+        return grid;
+    }
+
+    private static boolean isBlocked(RestrictedAirspace airspace, int x, int y) {
+        if (airspace.grid() != null) return airspace.grid().isBlocked(x, y);
+        return isInsideAnyArea(x * STEP, y * STEP, airspace.index());
+    }
+
+    // Compass directions (bit i for direction i) whose move from cell (x, y) is blocked
+    private static int blockedDirections(RestrictedAirspace airspace, int x, int y) {
+        if (airspace.grid() != null) return airspace.grid().blockedDirections(x, y);
+        if (isInsideAnyArea(x * STEP, y * STEP, airspace.index())) return PassabilityGrid.ALL_DIRECTIONS;
+        return computeBlockedDirections(x, y, airspace.index());
     }
 
-    // check whether the straight line segment between two nodes intersects any buffered restricted Area
-    private static boolean isSegmentIntersectAnyArea(Node a, Node b, List<Area> areas) {
-        if (areas == null || areas.isEmpty()) return false;
-        Line2D.Double line = new Line2D.Double(a.x, a.y, b.x, b.y);
-        float strokeWidth = (float) STEP;
-        BasicStroke stroke = new BasicStroke(strokeWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
-        Shape strokedLine = stroke.createStrokedShape(line);
-        Area lineArea = new Area(strokedLine);
-
-        for (Area area : areas) {
-            if (area == null) continue;
-            Area copy = new Area(area);
-            copy.intersect(lineArea);
-            if (!copy.isEmpty()) return true;
+    // Whether flying from cell (ax, ay) to cell (bx, by) crosses a buffered area; one compass move is a lookup
+    private static boolean isMoveBlocked(RestrictedAirspace airspace, int ax, int ay, int bx, int by) {
+        for (int i = 0; i < NEIGHBOURS; i++) {
+            if (ax + NEIGHBOUR_DX[i] == bx && ay + NEIGHBOUR_DY[i] == by) {
+                return (blockedDirections(airspace, ax, ay) & (1 << i)) != 0;
+            }
         }
-        return false;
+        return isSegmentIntersectAnyArea(ax * STEP, ay * STEP, bx * STEP, by * STEP, airspace.index());
     }
 
-    private static class Node {
-        final double x; // snapped lng
-        final double y; // snapped lat
-        final int gx;   // grid x index
-        final int gy;   // grid y index
-        double g = 0;
-        double h = 0;
-        double f = 0;
-
-        Node(double x, double y) {
-            // snap to grid so equals/hashCode work reliably
-            int gridX = (int) Math.round(x / STEP);
-            int gridY = (int) Math.round(y / STEP);
-            this.gx = gridX;
-            this.gy = gridY;
-            this.x = gridX * STEP;
-            this.y = gridY * STEP;
+    // A move is blocked when it ends inside a buffered area or its stroked segment touches one; directions
+    // snapping to the same cell share the result
+    private static int computeBlockedDirections(int x, int y, RestrictedAreaIndex index) {
+        double px = x * STEP;
+        double py = y * STEP;
+        int blocked = 0;
+        for (int i = 0; i < NEIGHBOURS; i++) {
+            int first = FIRST_SAME_CELL[i];
+            if (first != i) {
+                blocked |= (blocked >>> first & 1) << i;
+                continue;
+            }
+            double neighbourX = (x + NEIGHBOUR_DX[i]) * STEP;
+            double neighbourY = (y + NEIGHBOUR_DY[i]) * STEP;
+            if (isInsideAnyArea(neighbourX, neighbourY, index) ||
+                isSegmentIntersectAnyArea(px, py, neighbourX, neighbourY, index)) {
+                blocked |= 1 << i;
+            }
         }
+        return blocked;
+    }
 
-        static Node fromLngLat(LngLat p) {
-            return new Node(p.getLng(), p.getLat());
+    // Each restricted area grown by half a step on every side, like the outline drawn with a pen one step wide
+    private static List<BufferedPolygon> buildBufferedPolygons(List<RestrictedArea> restrictedAreas) {
+        List<BufferedPolygon> polygons = new ArrayList<>();
+        if (restrictedAreas == null) return polygons;
+        for (RestrictedArea ra : restrictedAreas) {
+            if (ra == null || ra.getVertices() == null || ra.getVertices().length == 0) continue;
+            polygons.add(BufferedPolygon.of(ra, BUFFER));
         }
+        return polygons;
+    }
+
+    private static boolean isInsideAnyArea(double x, double y, RestrictedAreaIndex index) {
+        return index.contains(x, y);
+    }
+
+    // check whether the straight line segment between two nodes, one step wide, touches any buffered restricted area
+    private static boolean isSegmentIntersectAnyArea(double ax, double ay, double bx, double by,
+                                                     RestrictedAreaIndex index) {
+        return index.isTouchedBy(ax, ay, bx, by, BUFFER);
+    }
 
-        List<Node> neighbors() {
-            // Use 16 compass directions (multiples of 22.5 degrees)
-            List<Node> n = new ArrayList<>(16);
-            for (int i = 0; i < 16; i++) {
-                double angle = Math.toRadians(i * 22.5);
-                double dx = Math.cos(angle) * STEP;
-                double dy = Math.sin(angle) * STEP;
-                n.add(new Node(x + dx, y + dy));
+    // Grid cell of a coordinate, as nodes have always been snapped
+    private static int gridIndex(double v) {
+        return (int) Math.round(v / STEP);
+    }
+
+    private static long pack(int gx, int gy) {
+        return ((long) gx << 32) | (gy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A* bookkeeping for the cells reached so far. Each cell gets a slot the first time it is reached (found
+     * through its packed grid coordinates), and everything known about it lives at that slot of the arrays:
+     * grid position, best known cost from the start, parent slot and whether it is closed.
+     * <p>
+     * One instance per thread is kept and reused, so a search only allocates its result. Nothing is wiped between
+     * searches: the slot map starts a new generation, slots are overwritten as they are handed out again and the
+     * open set only forgets what was still queued. A thread whose search grew the arrays past
+     * {@link #MAX_RETAINED_SLOTS} drops them afterwards rather than holding on to them.
+     */
+    private static final class SearchState {
+        private static final int INITIAL_SLOTS = 1024;
+        private static final int MAX_RETAINED_SLOTS = 1 << 18;
+        private static final ThreadLocal<SearchState> WORKSPACE = ThreadLocal.withInitial(SearchState::new);
+
+        private final LongIntHashMap slots = new LongIntHashMap(INITIAL_SLOTS);
+        private final IndexedMinHeap open = new IndexedMinHeap(INITIAL_SLOTS);
+        private boolean[] closed = new boolean[INITIAL_SLOTS];
+        private int[] gx = new int[INITIAL_SLOTS];
+        private int[] gy = new int[INITIAL_SLOTS];
+        private double[] g = new double[INITIAL_SLOTS];
+        private int[] parent = new int[INITIAL_SLOTS];
+        // slots along the path being reconstructed, goal end first
+        private int[] path = new int[INITIAL_SLOTS];
+        private int size;
+
+        static SearchState forCurrentThread() {
+            return WORKSPACE.get();
+        }
+
+        // Forgets this search; the arrays are kept for the thread's next one unless they grew too large
+        void release() {
+            if (gx.length > MAX_RETAINED_SLOTS) {
+                WORKSPACE.remove();
+                return;
             }
-            return n;
+            slots.clear();
+            open.clear();
+            size = 0;
         }
 
-        double distanceTo(Node o) {
-            double dx = this.x - o.x;
-            double dy = this.y - o.y;
-            return Math.hypot(dx, dy);
+        // Slot of a cell already reached, or -1
+        int find(int x, int y) {
+            return slots.get(pack(x, y));
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Node node)) return false;
-            return gx == node.gx && gy == node.gy;
+        // Slot of a cell, reaching it (with no parent and an unknown cost) if it has not been reached yet
+        int slotOf(int x, int y) {
+            long key = pack(x, y);
+            int slot = slots.get(key);
+            if (slot >= 0) return slot;
+            if (size == gx.length) grow();
+            slot = size++;
+            gx[slot] = x;
+            gy[slot] = y;
+            g[slot] = Double.POSITIVE_INFINITY;
+            parent[slot] = -1;
+            closed[slot] = false;
+            slots.put(key, slot);
+            return slot;
         }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(gx, gy);
+        private void grow() {
+            int capacity = gx.length * 2;
+            closed = Arrays.copyOf(closed, capacity);
+            gx = Arrays.copyOf(gx, capacity);
+            gy = Arrays.copyOf(gy, capacity);
+            g = Arrays.copyOf(g, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            path = new int[capacity];
         }
     }
 }
-
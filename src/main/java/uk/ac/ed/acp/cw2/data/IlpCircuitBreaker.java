@@ -0,0 +1,111 @@
+package uk.ac.ed.acp.cw2.data;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for one ILP dataset. After {@code failureThreshold} consecutive failures it opens and rejects
+ * calls for {@code openDuration}; the first call after that is let through alone as a half-open probe, which
+ * closes the breaker on success and reopens it (for another full {@code openDuration}) on failure.
+ */
+public class IlpCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(IlpCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    @Getter
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationNs;
+    private final LongSupplier nanoClock;
+
+    @Getter
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNs;
+    private final Map<State, AtomicLong> transitions = new EnumMap<>(State.class);
+
+    public IlpCircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this(name, failureThreshold, openDuration, System::nanoTime);
+    }
+
+    IlpCircuitBreaker(String name, int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNs = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+        for (State s : State.values()) transitions.put(s, new AtomicLong());
+    }
+
+    /**
+     * Asks to make a call. Every {@code true} must be followed by {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return false while the breaker is open, or half-open with the probe still in flight
+     */
+    public synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> false;
+            case OPEN -> {
+                if (nanoClock.getAsLong() - openedAtNs < openDurationNs) yield false;
+                transitionTo(State.HALF_OPEN);
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) transitionTo(State.CLOSED);
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAtNs = nanoClock.getAsLong();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public long getTransitionCount(State to) {
+        return transitions.get(to).get();
+    }
+
+    // Gauge value: 0 closed, 1 half-open, 2 open
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ilp.breaker.state", this, b -> b.getState().ordinal())
+                .description("ILP circuit breaker state (0 closed, 1 half-open, 2 open)")
+                .tag("dataset", name)
+                .register(registry);
+        for (State to : State.values()) {
+            FunctionCounter.builder("ilp.breaker.transitions", transitions.get(to), AtomicLong::get)
+                    .description("ILP circuit breaker state transitions")
+                    .tag("dataset", name)
+                    .tag("to", to.name().toLowerCase())
+                    .register(registry);
+        }
+    }
+
+    private void transitionTo(State next) {
+        State from = state;
+        state = next;
+        transitions.get(next).incrementAndGet();
+        if (next == State.OPEN) {
+            logger.warn("ILP circuit breaker {} {} -> OPEN after {} consecutive failures, retrying in {}ms",
+                    name, from, consecutiveFailures, openDurationNs / 1_000_000);
+        } else {
+            logger.info("ILP circuit breaker {} {} -> {}", name, from, next);
+        }
+    }
+}
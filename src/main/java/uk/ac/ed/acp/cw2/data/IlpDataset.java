@@ -0,0 +1,20 @@
+package uk.ac.ed.acp.cw2.data;
+
+import lombok.Getter;
+
+/**
+ * The four reference datasets served by the ILP REST service, with the path each one is fetched from.
+ */
+@Getter
+public enum IlpDataset {
+    DRONES("/drones"),
+    SERVICE_POINTS("/service-points"),
+    DRONES_FOR_SERVICE_POINTS("/drones-for-service-points"),
+    RESTRICTED_AREAS("/restricted-areas");
+
+    private final String path;
+
+    IlpDataset(String path) {
+        this.path = path;
+    }
+}
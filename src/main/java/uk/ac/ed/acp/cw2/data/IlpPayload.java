@@ -0,0 +1,28 @@
+package uk.ac.ed.acp.cw2.data;
+
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * One ILP dataset as mapped to entities, together with what is needed to tell whether the next response changed:
+ * the HTTP validators (ETag / Last-Modified) when the server sends them and a SHA-256 of the raw body otherwise.
+ *
+ * @param data          mapped entities, never modified after construction
+ * @param etag          ETag of the response the data came from, or null
+ * @param lastModified  Last-Modified of the response the data came from, or null
+ * @param contentHash   SHA-256 of the raw response body, or null when the body was not hashed
+ */
+public record IlpPayload<T>(List<T> data, String etag, String lastModified, byte[] contentHash) {
+
+    public IlpPayload {
+        data = data == null ? List.of() : List.copyOf(data);
+    }
+
+    public static <T> IlpPayload<T> of(List<T> data) {
+        return new IlpPayload<>(data, null, null, null);
+    }
+
+    public boolean hasContentHash(byte[] hash) {
+        return contentHash != null && MessageDigest.isEqual(contentHash, hash);
+    }
+}
@@ -0,0 +1,135 @@
+package uk.ac.ed.acp.cw2.data;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent fetches of the same ILP dataset: the first caller starts the call, everyone who asks for
+ * that dataset while it is in flight waits for and shares its result (or its failure). Once the call completes the
+ * next caller starts a fresh one, so at most one call per dataset is ever in flight.
+ * <p>
+ * The call runs on {@code executor} rather than on the first caller's thread, so one caller giving up (deadline,
+ * interrupt) does not fail the others; the call is only cancelled once every caller waiting on it has given up.
+ */
+public class IlpSingleFlight {
+
+    private final ExecutorService executor;
+    private final Map<IlpDataset, Flight<?>> inFlight = new EnumMap<>(IlpDataset.class);
+    private final Map<IlpDataset, AtomicLong> started = new EnumMap<>(IlpDataset.class);
+    private final Map<IlpDataset, AtomicLong> joined = new EnumMap<>(IlpDataset.class);
+
+    public IlpSingleFlight(ExecutorService executor) {
+        this.executor = executor;
+        for (IlpDataset dataset : IlpDataset.values()) {
+            started.put(dataset, new AtomicLong());
+            joined.put(dataset, new AtomicLong());
+        }
+    }
+
+    /**
+     * Returns the result of the in-flight call for {@code dataset}, starting {@code call} if there is none.
+     *
+     * @param dataset dataset being fetched, at most one call per dataset runs at a time
+     * @param call    the fetch itself, only invoked when no call for the dataset is in flight
+     * @return the result of whichever call was in flight, shared by every caller that joined it
+     * @throws RuntimeException the exception the shared call failed with, or IllegalStateException when it failed
+     *                          with a checked exception or the caller was interrupted while waiting
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(IlpDataset dataset, Supplier<T> call) {
+        Flight<T> flight;
+        synchronized (this) {
+            flight = (Flight<T>) inFlight.get(dataset);
+            if (flight != null) {
+                flight.waiters++;
+                joined.get(dataset).incrementAndGet();
+            } else {
+                Flight<T> created = new Flight<>();
+                inFlight.put(dataset, created);
+                started.get(dataset).incrementAndGet();
+                created.task = executor.submit(() -> run(dataset, created, call));
+                flight = created;
+            }
+        }
+
+        try {
+            return flight.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(dataset, flight);
+            throw new IllegalStateException("Interrupted while waiting for ILP fetch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException("ILP fetch failed", e.getCause());
+        }
+    }
+
+    // Leave the map before completing so nobody joins a call whose result has already been handed out
+    private <T> void run(IlpDataset dataset, Flight<T> flight, Supplier<T> call) {
+        T result = null;
+        Throwable error = null;
+        try {
+            result = call.get();
+        } catch (Throwable t) {
+            error = t;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(dataset, flight);
+            }
+        }
+        if (error != null) {
+            flight.result.completeExceptionally(error);
+        } else {
+            flight.result.complete(result);
+        }
+    }
+
+    // The last caller to give up cancels the call, the same as a caller running it on its own thread would
+    private synchronized void abandon(IlpDataset dataset, Flight<?> flight) {
+        if (--flight.waiters > 0) return;
+        if (inFlight.remove(dataset, flight)) flight.task.cancel(true);
+    }
+
+    public synchronized boolean isInFlight(IlpDataset dataset) {
+        return inFlight.containsKey(dataset);
+    }
+
+    public long getStartedCount(IlpDataset dataset) {
+        return started.get(dataset).get();
+    }
+
+    public long getJoinedCount(IlpDataset dataset) {
+        return joined.get(dataset).get();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        for (IlpDataset dataset : IlpDataset.values()) {
+            String name = dataset.getPath().substring(1);
+            FunctionCounter.builder("ilp.fetch.calls", started.get(dataset), AtomicLong::get)
+                    .description("ILP fetches started (one per coalesced group of callers)")
+                    .tag("dataset", name)
+                    .register(registry);
+            FunctionCounter.builder("ilp.fetch.coalesced", joined.get(dataset), AtomicLong::get)
+                    .description("ILP fetch requests served by joining a call already in flight")
+                    .tag("dataset", name)
+                    .register(registry);
+        }
+    }
+
+    // Guarded by the IlpSingleFlight monitor, apart from result
+    private static final class Flight<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private int waiters = 1;
+        private Future<?> task;
+    }
+}
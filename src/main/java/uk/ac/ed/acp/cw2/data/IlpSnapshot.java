@@ -0,0 +1,101 @@
+package uk.ac.ed.acp.cw2.data;
+
+import lombok.Getter;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of the four ILP reference datasets as fetched at a point in time.
+ * Instances are shared between request threads, so the lists are never modified after construction.
+ * A dataset that did not change between two fetches keeps the same payload (and list) instance, so anything
+ * derived from it can be reused by identity.
+ * Datasets that could not be refreshed (ILP failing or its circuit breaker open) keep their last good payload and
+ * are listed in {@link #getStaleDatasets()}.
+ */
+@Getter
+public final class IlpSnapshot {
+
+    private final IlpPayload<Drone> dronesPayload;
+    private final IlpPayload<DroneServicePoint> servicePointsPayload;
+    private final IlpPayload<DroneForServicePoint> dronesForServicePointsPayload;
+    private final IlpPayload<RestrictedArea> restrictedAreasPayload;
+    private final Instant fetchedAt;
+    private final Set<IlpDataset> staleDatasets;
+
+    public IlpSnapshot(List<Drone> drones,
+                       List<DroneServicePoint> servicePoints,
+                       List<DroneForServicePoint> dronesForServicePoints,
+                       List<RestrictedArea> restrictedAreas,
+                       Instant fetchedAt) {
+        this(IlpPayload.of(drones), IlpPayload.of(servicePoints), IlpPayload.of(dronesForServicePoints),
+                IlpPayload.of(restrictedAreas), fetchedAt);
+    }
+
+    public IlpSnapshot(IlpPayload<Drone> dronesPayload,
+                       IlpPayload<DroneServicePoint> servicePointsPayload,
+                       IlpPayload<DroneForServicePoint> dronesForServicePointsPayload,
+                       IlpPayload<RestrictedArea> restrictedAreasPayload,
+                       Instant fetchedAt) {
+        this(dronesPayload, servicePointsPayload, dronesForServicePointsPayload, restrictedAreasPayload, fetchedAt,
+                Set.of());
+    }
+
+    public IlpSnapshot(IlpPayload<Drone> dronesPayload,
+                       IlpPayload<DroneServicePoint> servicePointsPayload,
+                       IlpPayload<DroneForServicePoint> dronesForServicePointsPayload,
+                       IlpPayload<RestrictedArea> restrictedAreasPayload,
+                       Instant fetchedAt,
+                       Set<IlpDataset> staleDatasets) {
+        this.dronesPayload = dronesPayload;
+        this.servicePointsPayload = servicePointsPayload;
+        this.dronesForServicePointsPayload = dronesForServicePointsPayload;
+        this.restrictedAreasPayload = restrictedAreasPayload;
+        this.fetchedAt = fetchedAt;
+        this.staleDatasets = staleDatasets.isEmpty()
+                ? Set.of()
+                : Collections.unmodifiableSet(EnumSet.copyOf(staleDatasets));
+    }
+
+    // Same data, different staleness (e.g. a copy loaded from disk that has not been revalidated yet)
+    public IlpSnapshot withStaleDatasets(Set<IlpDataset> stale) {
+        return new IlpSnapshot(dronesPayload, servicePointsPayload, dronesForServicePointsPayload,
+                restrictedAreasPayload, fetchedAt, stale);
+    }
+
+    public boolean isStale() {
+        return !staleDatasets.isEmpty();
+    }
+
+    public List<Drone> getDrones() {
+        return dronesPayload.data();
+    }
+
+    public List<DroneServicePoint> getServicePoints() {
+        return servicePointsPayload.data();
+    }
+
+    public List<DroneForServicePoint> getDronesForServicePoints() {
+        return dronesForServicePointsPayload.data();
+    }
+
+    public List<RestrictedArea> getRestrictedAreas() {
+        return restrictedAreasPayload.data();
+    }
+
+    // True when every dataset is the very same payload instance as in the other snapshot
+    public boolean sameDataAs(IlpSnapshot other) {
+        return other != null
+                && dronesPayload == other.dronesPayload
+                && servicePointsPayload == other.servicePointsPayload
+                && dronesForServicePointsPayload == other.dronesForServicePointsPayload
+                && restrictedAreasPayload == other.restrictedAreasPayload;
+    }
+}
@@ -0,0 +1,332 @@
+package uk.ac.ed.acp.cw2.data;
+
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary copy of an {@link IlpSnapshot} on local disk, so the service can answer from the last fetched
+ * data straight after a restart, with or without the ILP service being reachable.
+ * <p>
+ * Layout (big-endian): magic, version, fetchedAt millis, then drones, service points, drones-for-service-points and
+ * restricted areas, each as validators + content hash + count + records. Strings are a UTF-8 length prefix (-1 for
+ * null) and nullable numbers a presence byte. Files are written to a sibling temp file and moved into place, so a
+ * reader never sees a half-written snapshot, and read through a memory-mapped {@link FileChannel}.
+ */
+public final class IlpSnapshotFile {
+
+    private static final int MAGIC = 0x494C5053; // "ILPS"
+    private static final int VERSION = 1;
+
+    private IlpSnapshotFile() {}
+
+    public static void write(IlpSnapshot snapshot, Path path) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(snapshot.getFetchedAt().toEpochMilli());
+                writePayload(out, snapshot.getDronesPayload(), IlpSnapshotFile::writeDrone);
+                writePayload(out, snapshot.getServicePointsPayload(), IlpSnapshotFile::writeServicePoint);
+                writePayload(out, snapshot.getDronesForServicePointsPayload(), IlpSnapshotFile::writeDroneForServicePoint);
+                writePayload(out, snapshot.getRestrictedAreasPayload(), IlpSnapshotFile::writeRestrictedArea);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static IlpSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 16 || in.getInt() != MAGIC) throw new IOException("Not an ILP snapshot file: " + path);
+            int version = in.getInt();
+            if (version != VERSION) throw new IOException("Unsupported ILP snapshot version " + version + ": " + path);
+
+            Instant fetchedAt = Instant.ofEpochMilli(in.getLong());
+            IlpPayload<Drone> drones = readPayload(in, IlpSnapshotFile::readDrone);
+            IlpPayload<DroneServicePoint> servicePoints = readPayload(in, IlpSnapshotFile::readServicePoint);
+            IlpPayload<DroneForServicePoint> dronesForServicePoints = readPayload(in, IlpSnapshotFile::readDroneForServicePoint);
+            IlpPayload<RestrictedArea> restrictedAreas = readPayload(in, IlpSnapshotFile::readRestrictedArea);
+            if (in.hasRemaining()) throw new IOException("Trailing bytes in ILP snapshot file: " + path);
+            return new IlpSnapshot(drones, servicePoints, dronesForServicePoints, restrictedAreas, fetchedAt);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt ILP snapshot file: " + path, e);
+        }
+    }
+
+    // ---- payloads
+
+    @FunctionalInterface
+    private interface RecordWriter<T> {
+        void write(DataOutputStream out, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordReader<T> {
+        T read(ByteBuffer in) throws IOException;
+    }
+
+    private static <T> void writePayload(DataOutputStream out, IlpPayload<T> payload, RecordWriter<T> writer) throws IOException {
+        writeString(out, payload.etag());
+        writeString(out, payload.lastModified());
+        writeBytes(out, payload.contentHash());
+        out.writeInt(payload.data().size());
+        for (T value : payload.data()) writer.write(out, value);
+    }
+
+    private static <T> IlpPayload<T> readPayload(ByteBuffer in, RecordReader<T> reader) throws IOException {
+        String etag = readString(in);
+        String lastModified = readString(in);
+        byte[] contentHash = readBytes(in);
+        int count = readLength(in);
+        List<T> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) data.add(reader.read(in));
+        return new IlpPayload<>(data, etag, lastModified, contentHash);
+    }
+
+    // ---- records
+
+    private static void writeDrone(DataOutputStream out, Drone d) throws IOException {
+        writeString(out, d.getId());
+        writeString(out, d.getName());
+        writeBoolean(out, d.getCooling());
+        writeBoolean(out, d.getHeating());
+        writeDouble(out, d.getCapacity());
+        writeInteger(out, d.getMaxMoves());
+        writeDouble(out, d.getCostPerMove());
+        writeDouble(out, d.getCostInitial());
+        writeDouble(out, d.getCostFinal());
+    }
+
+    private static Drone readDrone(ByteBuffer in) throws IOException {
+        return Drone.builder()
+                .id(readString(in))
+                .name(readString(in))
+                .cooling(readBoolean(in))
+                .heating(readBoolean(in))
+                .capacity(readDouble(in))
+                .maxMoves(readInteger(in))
+                .costPerMove(readDouble(in))
+                .costInitial(readDouble(in))
+                .costFinal(readDouble(in))
+                .build();
+    }
+
+    private static void writeServicePoint(DataOutputStream out, DroneServicePoint sp) throws IOException {
+        writeInteger(out, sp.getId());
+        writeString(out, sp.getName());
+        out.writeBoolean(sp.getLocation() != null);
+        if (sp.getLocation() != null) {
+            writeDouble(out, sp.getLocation().getLng());
+            writeDouble(out, sp.getLocation().getLat());
+        }
+    }
+
+    private static DroneServicePoint readServicePoint(ByteBuffer in) throws IOException {
+        DroneServicePoint.DroneServicePointBuilder sp = DroneServicePoint.builder()
+                .id(readInteger(in))
+                .name(readString(in));
+        if (in.get() != 0) sp.location(new LngLat(readDouble(in), readDouble(in)));
+        return sp.build();
+    }
+
+    private static void writeDroneForServicePoint(DataOutputStream out, DroneForServicePoint dfsp) throws IOException {
+        writeInteger(out, dfsp.getServicePointId());
+        DroneForServicePoint.DroneAvailability[] drones = dfsp.getDrones();
+        out.writeInt(drones == null ? -1 : drones.length);
+        if (drones == null) return;
+        for (DroneForServicePoint.DroneAvailability da : drones) {
+            writeString(out, da.getId());
+            DroneForServicePoint.Availability[] windows = da.getAvailability();
+            out.writeInt(windows == null ? -1 : windows.length);
+            if (windows == null) continue;
+            for (DroneForServicePoint.Availability w : windows) {
+                out.writeByte(w.getDayOfWeek() == null ? 0 : w.getDayOfWeek().getValue());
+                writeTime(out, w.getFrom());
+                writeTime(out, w.getUntil());
+            }
+        }
+    }
+
+    private static DroneForServicePoint readDroneForServicePoint(ByteBuffer in) throws IOException {
+        DroneForServicePoint.DroneForServicePointBuilder dfsp = DroneForServicePoint.builder()
+                .servicePointId(readInteger(in));
+        int droneCount = in.getInt();
+        if (droneCount < 0) return dfsp.build();
+
+        DroneForServicePoint.DroneAvailability[] drones = new DroneForServicePoint.DroneAvailability[checkLength(in, droneCount)];
+        for (int i = 0; i < drones.length; i++) {
+            DroneForServicePoint.DroneAvailability.DroneAvailabilityBuilder da = DroneForServicePoint.DroneAvailability.builder()
+                    .id(readString(in));
+            int windowCount = in.getInt();
+            if (windowCount >= 0) {
+                DroneForServicePoint.Availability[] windows = new DroneForServicePoint.Availability[checkLength(in, windowCount)];
+                for (int j = 0; j < windows.length; j++) {
+                    windows[j] = DroneForServicePoint.Availability.builder()
+                            .dayOfWeek(readDay(in))
+                            .from(readTime(in))
+                            .until(readTime(in))
+                            .build();
+                }
+                da.availability(windows);
+            }
+            drones[i] = da.build();
+        }
+        return dfsp.drones(drones).build();
+    }
+
+    private static void writeRestrictedArea(DataOutputStream out, RestrictedArea area) throws IOException {
+        writeString(out, area.getName());
+        writeInteger(out, area.getId());
+        out.writeBoolean(area.getLimits() != null);
+        if (area.getLimits() != null) {
+            writeInteger(out, area.getLimits().getLower());
+            writeInteger(out, area.getLimits().getUpper());
+        }
+        RestrictedArea.vertices[] vertices = area.getVertices();
+        out.writeInt(vertices == null ? -1 : vertices.length);
+        if (vertices == null) return;
+        for (RestrictedArea.vertices v : vertices) {
+            writeDouble(out, v.getLng());
+            writeDouble(out, v.getLat());
+        }
+    }
+
+    private static RestrictedArea readRestrictedArea(ByteBuffer in) throws IOException {
+        RestrictedArea.RestrictedAreaBuilder area = RestrictedArea.builder()
+                .name(readString(in))
+                .id(readInteger(in));
+        if (in.get() != 0) {
+            area.limits(RestrictedArea.limits.builder().lower(readInteger(in)).upper(readInteger(in)).build());
+        }
+        int vertexCount = in.getInt();
+        if (vertexCount >= 0) {
+            RestrictedArea.vertices[] vertices = new RestrictedArea.vertices[checkLength(in, vertexCount)];
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = RestrictedArea.vertices.builder().lng(readDouble(in)).lat(readDouble(in)).build();
+            }
+            area.vertices(vertices);
+        }
+        return area.build();
+    }
+
+    // ---- primitives
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        byte[] utf8 = readBytes(in);
+        return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[checkLength(in, length)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static int readLength(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) throw new IOException("Negative record count in ILP snapshot file");
+        return checkLength(in, length);
+    }
+
+    // Every record takes at least one byte, so a count larger than what is left means the file is corrupt
+    private static int checkLength(ByteBuffer in, int length) throws IOException {
+        if (length > in.remaining()) throw new IOException("Truncated ILP snapshot file");
+        return length;
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean b) throws IOException {
+        out.writeByte(b == null ? -1 : b ? 1 : 0);
+    }
+
+    private static Boolean readBoolean(ByteBuffer in) {
+        byte b = in.get();
+        return b < 0 ? null : b != 0;
+    }
+
+    private static void writeDouble(DataOutputStream out, Double d) throws IOException {
+        out.writeBoolean(d != null);
+        if (d != null) out.writeDouble(d);
+    }
+
+    private static Double readDouble(ByteBuffer in) {
+        return in.get() == 0 ? null : in.getDouble();
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer i) throws IOException {
+        out.writeBoolean(i != null);
+        if (i != null) out.writeInt(i);
+    }
+
+    private static Integer readInteger(ByteBuffer in) {
+        return in.get() == 0 ? null : in.getInt();
+    }
+
+    private static void writeTime(DataOutputStream out, LocalTime t) throws IOException {
+        out.writeLong(t == null ? -1 : t.toNanoOfDay());
+    }
+
+    // Range-checked here so a corrupt file fails as an IOException rather than a DateTimeException
+    private static LocalTime readTime(ByteBuffer in) throws IOException {
+        long nanos = in.getLong();
+        if (nanos < 0) return null;
+        if (nanos > LocalTime.MAX.toNanoOfDay()) throw new IOException("Invalid time of day in ILP snapshot file");
+        return LocalTime.ofNanoOfDay(nanos);
+    }
+
+    private static DayOfWeek readDay(ByteBuffer in) throws IOException {
+        int day = in.get();
+        if (day == 0) return null;
+        if (day < 1 || day > 7) throw new IOException("Invalid day of week " + day + " in ILP snapshot file");
+        return DayOfWeek.of(day);
+    }
+}
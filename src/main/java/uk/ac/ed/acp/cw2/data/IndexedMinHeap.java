@@ -0,0 +1,111 @@
+package uk.ac.ed.acp.cw2.data;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of non-negative {@code int} ids ordered by a {@code double} priority, which also remembers where
+ * each id sits so that lowering an id's priority is a sift-up rather than a linear search. Used as the open set of
+ * the path search, with node slots as ids.
+ */
+final class IndexedMinHeap {
+
+    private static final int ABSENT = -1;
+
+    // heap[i] is the id at position i and priorities[i] its priority
+    private int[] heap;
+    private double[] priorities;
+    // positions[id] is where id sits in the heap, or ABSENT
+    private int[] positions;
+    private int size;
+
+    IndexedMinHeap(int expected) {
+        int capacity = Math.max(16, expected);
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return id < positions.length && positions[id] != ABSENT;
+    }
+
+    /**
+     * Adds {@code id}, or moves it up if it is already queued with a higher priority.
+     *
+     * @param id       non-negative id
+     * @param priority lower comes out first
+     */
+    void push(int id, double priority) {
+        if (id >= positions.length) growIds(id + 1);
+        int at = positions[id];
+        if (at == ABSENT) {
+            if (size == heap.length) growHeap();
+            at = size++;
+        } else if (priority >= priorities[at]) {
+            return;
+        }
+        siftUp(at, id, priority);
+    }
+
+    // Removes and returns the id with the lowest priority; the heap must not be empty
+    int poll() {
+        int top = heap[0];
+        positions[top] = ABSENT;
+        if (--size > 0) siftDown(0, heap[size], priorities[size]);
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) positions[heap[i]] = ABSENT;
+        size = 0;
+    }
+
+    private void siftUp(int at, int id, double priority) {
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (priorities[parent] <= priority) break;
+            place(at, heap[parent], priorities[parent]);
+            at = parent;
+        }
+        place(at, id, priority);
+    }
+
+    private void siftDown(int at, int id, double priority) {
+        int half = size >>> 1;
+        while (at < half) {
+            int child = 2 * at + 1;
+            int right = child + 1;
+            if (right < size && priorities[right] < priorities[child]) child = right;
+            if (priority <= priorities[child]) break;
+            place(at, heap[child], priorities[child]);
+            at = child;
+        }
+        place(at, id, priority);
+    }
+
+    private void place(int at, int id, double priority) {
+        heap[at] = id;
+        priorities[at] = priority;
+        positions[id] = at;
+    }
+
+    private void growHeap() {
+        heap = Arrays.copyOf(heap, heap.length * 2);
+        priorities = Arrays.copyOf(priorities, priorities.length * 2);
+    }
+
+    private void growIds(int minLength) {
+        int old = positions.length;
+        positions = Arrays.copyOf(positions, Math.max(minLength, old * 2));
+        Arrays.fill(positions, old, positions.length, ABSENT);
+    }
+}
@@ -0,0 +1,86 @@
+package uk.ac.ed.acp.cw2.data;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} keys to non-negative {@code int} values, with linear probing and no
+ * boxing. Used by the path search to number grid cells (keyed by their packed coordinates) as it reaches them.
+ * <p>
+ * Entries are stamped with the generation they were written in, so {@link #clear()} just starts a new generation
+ * and the map can be reused search after search without refilling its arrays.
+ */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    // an entry is live when its stamp equals generation
+    private int[] stamps;
+    private int generation = 1;
+    private int size;
+    private int mask;
+
+    LongIntHashMap(int expected) {
+        allocate(Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1);
+    }
+
+    int get(long key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (stamps[i] != generation) return MISSING;
+            if (keys[i] == key) return values[i];
+        }
+    }
+
+    // value must be non-negative; replaces any value already held for key
+    void put(long key, int value) {
+        int i = slot(key);
+        while (stamps[i] == generation && keys[i] != key) i = (i + 1) & mask;
+        if (stamps[i] != generation) {
+            stamps[i] = generation;
+            size++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (size * 2 > keys.length) grow();
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        size = 0;
+        if (++generation == 0) {
+            // stamps wrapped around, so old entries could look live again
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        stamps = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldStamps = stamps;
+        int live = generation;
+        allocate(oldKeys.length * 2);
+        generation = 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] == live) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
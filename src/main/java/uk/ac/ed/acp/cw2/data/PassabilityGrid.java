@@ -0,0 +1,106 @@
+package uk.ac.ed.acp.cw2.data;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Precomputed passability of the path search grid around the restricted areas: which cells are blocked, and from
+ * each cell which of the 16 compass moves are, as one bit per direction. Computed once per set of restricted
+ * areas, so collision checks during a search are bit lookups.
+ * <p>
+ * Only the cells inside the given regions are evaluated; every other cell, inside the raster or beyond it, is
+ * clear in every direction. Callers make the regions wide enough that this holds.
+ */
+final class PassabilityGrid {
+
+    static final int ALL_DIRECTIONS = 0xFFFF;
+
+    // Rasters beyond this many cells are not built; callers check the geometry directly instead
+    static final long MAX_CELLS = 1L << 22;
+
+    @FunctionalInterface
+    interface CellTest {
+        boolean isBlocked(int x, int y);
+    }
+
+    @FunctionalInterface
+    interface MoveTest {
+        // bit i set when the move in compass direction i from (x, y) is blocked
+        int blockedDirections(int x, int y);
+    }
+
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
+    private final BitSet blocked;
+    private final char[] blockedMoves;
+
+    private PassabilityGrid(int minX, int minY, int width, int height) {
+        this.minX = minX;
+        this.minY = minY;
+        this.width = width;
+        this.height = height;
+        this.blocked = new BitSet(width * height);
+        this.blockedMoves = new char[width * height];
+    }
+
+    /**
+     * Rasterizes the given regions of the grid.
+     *
+     * @param regions cell ranges to evaluate, each {@code {minX, minY, maxX, maxY}} inclusive
+     * @param cells   whether a cell is blocked
+     * @param moves   which moves leaving a clear cell are blocked; a blocked cell has every move blocked
+     * @return the raster, or null when the regions span more than {@link #MAX_CELLS} cells
+     */
+    static PassabilityGrid build(List<int[]> regions, CellTest cells, MoveTest moves) {
+        if (regions.isEmpty()) return new PassabilityGrid(0, 0, 0, 0);
+
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+        for (int[] r : regions) {
+            minX = Math.min(minX, r[0]);
+            minY = Math.min(minY, r[1]);
+            maxX = Math.max(maxX, r[2]);
+            maxY = Math.max(maxY, r[3]);
+        }
+        long width = maxX - minX + 1;
+        long height = maxY - minY + 1;
+        if (width * height > MAX_CELLS) return null;
+
+        PassabilityGrid grid = new PassabilityGrid((int) minX, (int) minY, (int) width, (int) height);
+        BitSet evaluated = new BitSet(grid.blockedMoves.length);
+        for (int[] r : regions) {
+            for (int y = r[1]; y <= r[3]; y++) {
+                for (int x = r[0]; x <= r[2]; x++) {
+                    int i = grid.index(x, y);
+                    if (evaluated.get(i)) continue;
+                    evaluated.set(i);
+                    if (cells.isBlocked(x, y)) grid.blocked.set(i);
+                }
+            }
+        }
+        for (int i = evaluated.nextSetBit(0); i >= 0; i = evaluated.nextSetBit(i + 1)) {
+            int x = grid.minX + i % grid.width;
+            int y = grid.minY + i / grid.width;
+            grid.blockedMoves[i] = (char) (grid.blocked.get(i) ? ALL_DIRECTIONS : moves.blockedDirections(x, y));
+        }
+        return grid;
+    }
+
+    boolean isBlocked(int x, int y) {
+        return contains(x, y) && blocked.get(index(x, y));
+    }
+
+    // bit i set when the move in compass direction i from (x, y) is blocked
+    int blockedDirections(int x, int y) {
+        return contains(x, y) ? blockedMoves[index(x, y)] : 0;
+    }
+
+    private boolean contains(int x, int y) {
+        return x >= minX && y >= minY && x - minX < width && y - minY < height;
+    }
+
+    private int index(int x, int y) {
+        return (y - minY) * width + (x - minX);
+    }
+}
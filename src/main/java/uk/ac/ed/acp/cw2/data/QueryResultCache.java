@@ -0,0 +1,111 @@
+package uk.ac.ed.acp.cw2.data;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of drone query results, keyed by the compiled {@link DroneQuery} and the version of the drone data
+ * it was evaluated against. When full, the least recently used result is evicted.
+ * <p>
+ * Results only ever belong to one generation of the fleet: the first lookup against a newer {@link WorldSnapshot}
+ * drops every cached result. Lookups from requests still holding an older world are evaluated but never cached,
+ * and neither is a result whose world was replaced while it was being computed.
+ */
+public class QueryResultCache {
+
+    private final int maxEntries;
+    private final Map<Key, String[]> results;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Generation the cached results belong to, guarded by this
+    private long version;
+    private DroneColumns columns;
+
+    public QueryResultCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String[]> eldest) {
+                return size() > QueryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached ids for {@code query} against {@code world}, evaluating and caching them on a miss.
+     *
+     * @param world    snapshot the query runs against
+     * @param query    compiled query, equal queries share a result
+     * @param evaluate computes the ids on a miss, outside the cache lock
+     * @return a copy of the ids, so callers may modify it
+     */
+    public String[] get(WorldSnapshot world, DroneQuery query, Supplier<String[]> evaluate) {
+        Key key = new Key(world.getVersion(), query);
+        synchronized (this) {
+            if (startGeneration(world)) {
+                String[] ids = results.get(key);
+                if (ids != null) {
+                    hits.incrementAndGet();
+                    return ids.clone();
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        String[] ids = evaluate.get();
+        synchronized (this) {
+            if (isGeneration(world)) results.put(key, ids.clone());
+        }
+        return ids;
+    }
+
+    // False when the world is older than the cached generation
+    private boolean startGeneration(WorldSnapshot world) {
+        if (isGeneration(world)) return true;
+        if (world.getVersion() < version) return false;
+        results.clear();
+        version = world.getVersion();
+        columns = world.getDroneColumns();
+        return true;
+    }
+
+    private boolean isGeneration(WorldSnapshot world) {
+        return version == world.getVersion() && columns == world.getDroneColumns();
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("drone.query.cache", hits, AtomicLong::get)
+                .description("Drone queries answered from the result cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("drone.query.cache", misses, AtomicLong::get)
+                .description("Drone queries evaluated because no cached result matched")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("drone.query.cache.size", this, QueryResultCache::size)
+                .description("Query results currently cached")
+                .register(registry);
+    }
+
+    private record Key(long version, DroneQuery query) {
+    }
+}
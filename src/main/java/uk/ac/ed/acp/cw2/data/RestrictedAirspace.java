@@ -0,0 +1,68 @@
+package uk.ac.ed.acp.cw2.data;
+
+import java.util.List;
+
+/**
+ * Restricted areas prepared for path finding by {@link FlightPathAlgorithm#prepare}: every area grown by the
+ * flight buffer, its edges indexed, and the passability of the search grid around it rasterized where that fits.
+ * <p>
+ * Preparing is the expensive part of planning, so a caller planning many legs around the same areas prepares them
+ * once and passes the result to every {@link FlightPathAlgorithm#findPath} call; {@link WorldSnapshot} keeps one
+ * per restricted-area payload. Nothing refers back to the areas it was prepared from, so changing them afterwards
+ * does not affect it.
+ */
+public final class RestrictedAirspace {
+
+    private final List<BufferedPolygon> polygons;
+    private final RestrictedAreaIndex index;
+    // null when the areas are too far apart to rasterize, and collisions are then checked on the index
+    private final PassabilityGrid grid;
+    // bounds of the areas' vertices, unbuffered; infinite and empty when there are none
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    RestrictedAirspace(List<BufferedPolygon> polygons, RestrictedAreaIndex index, PassabilityGrid grid,
+                       double minX, double minY, double maxX, double maxY) {
+        this.polygons = List.copyOf(polygons);
+        this.index = index;
+        this.grid = grid;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public boolean isEmpty() {
+        return polygons.isEmpty();
+    }
+
+    List<BufferedPolygon> polygons() {
+        return polygons;
+    }
+
+    RestrictedAreaIndex index() {
+        return index;
+    }
+
+    PassabilityGrid grid() {
+        return grid;
+    }
+
+    double minX() {
+        return minX;
+    }
+
+    double minY() {
+        return minY;
+    }
+
+    double maxX() {
+        return maxX;
+    }
+
+    double maxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,252 @@
+package uk.ac.ed.acp.cw2.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform-grid index over the edges of a set of {@link BufferedPolygon}s, answering the same collision questions
+ * as asking every polygon in turn while only looking at edges near the query.
+ * <p>
+ * The bounds of all polygons are cut into square buckets. Each bucket lists the edges that come within reach of
+ * it, where reach is an edge's buffer plus the widest move half-width the index is built for, so distance tests
+ * only visit the buckets the query overlaps. Whether a point is inside a polygon is decided by the winding number,
+ * which needs the polygon's edges crossing the horizontal line through the point: each bucket also lists the
+ * polygons whose bounds overlap it, and each polygon lists its edges per row of buckets, so only those edges are
+ * counted. Anything outside the bounds of all polygons is answered without looking at a bucket.
+ * <p>
+ * Built once per set of restricted areas and never modified afterwards.
+ */
+final class RestrictedAreaIndex {
+
+    // Buckets are made larger than asked for rather than allocating more than this many
+    static final int MAX_BUCKETS = 1 << 20;
+
+    private static final int[] NONE = new int[0];
+
+    private final BufferedPolygon[] polygons;
+    private final double maxHalfWidth;
+    private final double bucketSize;
+
+    // bucket (0, 0) starts at (originX, originY); the grid covers every point within reach of an edge
+    private final double originX;
+    private final double originY;
+    private final int columns;
+    private final int rows;
+
+    // every edge, numbered in polygon order: its ends and the buffer of its polygon
+    private final double[] startX;
+    private final double[] startY;
+    private final double[] endX;
+    private final double[] endY;
+    private final double[] edgeBuffer;
+
+    // per bucket: edges within reach of it, and polygons whose bounds overlap it
+    private final int[][] bucketEdges;
+    private final int[][] coveringPolygons;
+    // per polygon and row of buckets from its first row: its edges whose vertical extent overlaps the row
+    private final int[] firstRow;
+    private final int[][][] rowEdges;
+
+    /**
+     * @param polygons     buffered polygons to index
+     * @param bucketSize   side of a bucket, in the polygons' units
+     * @param maxHalfWidth widest segment half-width {@link #isTouchedBy} will be asked about
+     */
+    RestrictedAreaIndex(List<BufferedPolygon> polygons, double bucketSize, double maxHalfWidth) {
+        this.polygons = polygons.toArray(new BufferedPolygon[0]);
+        this.maxHalfWidth = maxHalfWidth;
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        int edges = 0;
+        for (BufferedPolygon polygon : this.polygons) {
+            minX = Math.min(minX, polygon.getMinX());
+            minY = Math.min(minY, polygon.getMinY());
+            maxX = Math.max(maxX, polygon.getMaxX());
+            maxY = Math.max(maxY, polygon.getMaxY());
+            edges += polygon.edgeCount();
+        }
+        if (edges == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        // a segment reaches edges from up to maxHalfWidth beyond the polygons' buffered bounds
+        minX -= maxHalfWidth;
+        minY -= maxHalfWidth;
+        maxX += maxHalfWidth;
+        maxY += maxHalfWidth;
+        double area = (maxX - minX) * (maxY - minY);
+        this.bucketSize = Math.max(bucketSize, Math.sqrt(area / MAX_BUCKETS) * 1.01);
+        this.originX = minX;
+        this.originY = minY;
+        this.columns = (int) ((maxX - minX) / this.bucketSize) + 1;
+        this.rows = (int) ((maxY - minY) / this.bucketSize) + 1;
+
+        startX = new double[edges];
+        startY = new double[edges];
+        endX = new double[edges];
+        endY = new double[edges];
+        edgeBuffer = new double[edges];
+        IntLists reaching = new IntLists(columns * rows);
+        IntLists covering = new IntLists(columns * rows);
+        firstRow = new int[this.polygons.length];
+        rowEdges = new int[this.polygons.length][][];
+
+        int e = 0;
+        for (int p = 0; p < this.polygons.length; p++) {
+            BufferedPolygon polygon = this.polygons[p];
+            int top = row(polygon.getMaxY());
+            firstRow[p] = row(polygon.getMinY());
+            for (int gy = firstRow[p]; gy <= top; gy++) {
+                for (int gx = column(polygon.getMinX()); gx <= column(polygon.getMaxX()); gx++) {
+                    covering.add(gy * columns + gx, p);
+                }
+            }
+            IntLists polygonRows = new IntLists(top - firstRow[p] + 1);
+            for (int i = 0; i < polygon.edgeCount(); i++, e++) {
+                startX[e] = polygon.edgeStartX(i);
+                startY[e] = polygon.edgeStartY(i);
+                endX[e] = polygon.edgeEndX(i);
+                endY[e] = polygon.edgeEndY(i);
+                edgeBuffer[e] = polygon.getBuffer();
+                addToBuckets(reaching, e, edgeBuffer[e] + maxHalfWidth);
+                addToRows(polygonRows, firstRow[p], e);
+            }
+            rowEdges[p] = polygonRows.toArrays();
+        }
+        bucketEdges = reaching.toArrays();
+        coveringPolygons = covering.toArrays();
+    }
+
+    // Whether (x, y) is inside any buffered polygon
+    boolean contains(double x, double y) {
+        int gx = column(x), gy = row(y);
+        if (!inGrid(gx, gy)) return false;
+        if (isInsideAnyPolygon(x, y, gx, gy)) return true;
+        for (int e : bucketEdges[gy * columns + gx]) {
+            double d = BufferedPolygon.pointSegmentDistanceSq(x, y, startX[e], startY[e], endX[e], endY[e]);
+            if (d <= edgeBuffer[e] * edgeBuffer[e]) return true;
+        }
+        return false;
+    }
+
+    // Whether the segment (ax, ay)-(bx, by), widened by halfWidth on each side, touches any buffered polygon
+    boolean isTouchedBy(double ax, double ay, double bx, double by, double halfWidth) {
+        if (halfWidth > maxHalfWidth) {
+            throw new IllegalArgumentException("Half-width " + halfWidth + " exceeds the indexed " + maxHalfWidth);
+        }
+        int fromX = Math.max(0, column(Math.min(ax, bx))), toX = Math.min(columns - 1, column(Math.max(ax, bx)));
+        int fromY = Math.max(0, row(Math.min(ay, by))), toY = Math.min(rows - 1, row(Math.max(ay, by)));
+        if (fromX > toX || fromY > toY) return false;
+
+        int aX = column(ax), aY = row(ay), bX = column(bx), bY = row(by);
+        if (inGrid(aX, aY) && isInsideAnyPolygon(ax, ay, aX, aY)) return true;
+        if (inGrid(bX, bY) && isInsideAnyPolygon(bx, by, bX, bY)) return true;
+        for (int gy = fromY; gy <= toY; gy++) {
+            for (int gx = fromX; gx <= toX; gx++) {
+                for (int e : bucketEdges[gy * columns + gx]) {
+                    double reach = edgeBuffer[e] + halfWidth;
+                    // most edges in a bucket are out of reach along one axis, which is cheaper to see
+                    if (Math.min(startX[e], endX[e]) - reach > Math.max(ax, bx)
+                            || Math.max(startX[e], endX[e]) + reach < Math.min(ax, bx)
+                            || Math.min(startY[e], endY[e]) - reach > Math.max(ay, by)
+                            || Math.max(startY[e], endY[e]) + reach < Math.min(ay, by)) {
+                        continue;
+                    }
+                    double d = BufferedPolygon.segmentDistanceSq(ax, ay, bx, by,
+                            startX[e], startY[e], endX[e], endY[e]);
+                    if (d <= reach * reach) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Non-zero winding around (x, y), lying in bucket (gx, gy), for any polygon
+    private boolean isInsideAnyPolygon(double x, double y, int gx, int gy) {
+        for (int p : coveringPolygons[gy * columns + gx]) {
+            BufferedPolygon polygon = polygons[p];
+            if (x < polygon.getMinX() || x > polygon.getMaxX() || y < polygon.getMinY() || y > polygon.getMaxY()) {
+                continue;
+            }
+            int[][] byRow = rowEdges[p];
+            int r = gy - firstRow[p];
+            if (r < 0 || r >= byRow.length) continue;
+            int winding = 0;
+            for (int e : byRow[r]) {
+                winding += BufferedPolygon.windingCrossing(startX[e], startY[e], endX[e], endY[e], x, y);
+            }
+            if (winding != 0) return true;
+        }
+        return false;
+    }
+
+    // Adds the edge to every bucket that some point within reach of it falls in
+    private void addToBuckets(IntLists buckets, int e, double reach) {
+        double x0 = startX[e], y0 = startY[e], x1 = endX[e], y1 = endY[e];
+        // every point of a bucket is within half its diagonal (0.71 of a side) of the centre; 0.75 allows for rounding
+        double limit = (reach + 0.75 * bucketSize) * (reach + 0.75 * bucketSize);
+        int fromX = Math.max(0, column(Math.min(x0, x1) - reach));
+        int toX = Math.min(columns - 1, column(Math.max(x0, x1) + reach));
+        int fromY = Math.max(0, row(Math.min(y0, y1) - reach));
+        int toY = Math.min(rows - 1, row(Math.max(y0, y1) + reach));
+        for (int gy = fromY; gy <= toY; gy++) {
+            for (int gx = fromX; gx <= toX; gx++) {
+                double cx = originX + (gx + 0.5) * bucketSize;
+                double cy = originY + (gy + 0.5) * bucketSize;
+                if (BufferedPolygon.pointSegmentDistanceSq(cx, cy, x0, y0, x1, y1) <= limit) {
+                    buckets.add(gy * columns + gx, e);
+                }
+            }
+        }
+    }
+
+    // Horizontal edges never change a winding number, so they are left out of the rows
+    private void addToRows(IntLists polygonRows, int first, int e) {
+        double y0 = startY[e], y1 = endY[e];
+        if (y0 == y1) return;
+        for (int gy = row(Math.min(y0, y1)); gy <= row(Math.max(y0, y1)); gy++) polygonRows.add(gy - first, e);
+    }
+
+    private boolean inGrid(int gx, int gy) {
+        return gx >= 0 && gy >= 0 && gx < columns && gy < rows;
+    }
+
+    // Bucket column of x: -1 before the grid, columns after it
+    private int column(double x) {
+        return (int) Math.max(-1, Math.min(columns, Math.floor((x - originX) / bucketSize)));
+    }
+
+    // Bucket row of y: -1 below the grid, rows above it
+    private int row(double y) {
+        return (int) Math.max(-1, Math.min(rows, Math.floor((y - originY) / bucketSize)));
+    }
+
+    // Growable int lists, one per slot, flattened once the index is built
+    private static final class IntLists {
+        private final int[][] lists;
+        private final int[] sizes;
+
+        IntLists(int slots) {
+            lists = new int[slots][];
+            sizes = new int[slots];
+        }
+
+        void add(int slot, int value) {
+            int[] list = lists[slot];
+            if (list == null) {
+                list = lists[slot] = new int[4];
+            } else if (sizes[slot] == list.length) {
+                list = lists[slot] = Arrays.copyOf(list, list.length * 2);
+            }
+            list[sizes[slot]++] = value;
+        }
+
+        int[][] toArrays() {
+            int[][] arrays = new int[lists.length][];
+            for (int i = 0; i < arrays.length; i++) {
+                arrays[i] = lists[i] == null ? NONE : Arrays.copyOf(lists[i], sizes[i]);
+            }
+            return arrays;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package uk.ac.ed.acp.cw2.data;
+
+import lombok.Getter;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link IlpSnapshot} together with the lookup indices the endpoints derive from it: drone by id, service point
+ * by id, each drone's home service point, each drone's availability windows (also as an {@link AvailabilityIndex}),
+ * the fleet in columns for queries and the restricted areas prepared for path finding.
+ * <p>
+ * The indices are built once per data change and never modified afterwards, so a single instance is shared by all
+ * request threads without locking. {@link #getVersion()} increases by one every time the ILP data changes; a
+ * snapshot that only differs in staleness keeps the version and the indices of the one it replaces. When only some
+ * datasets changed, indices derived solely from unchanged ones are carried over rather than rebuilt.
+ */
+@Getter
+public final class WorldSnapshot {
+
+    private final IlpSnapshot snapshot;
+    private final long version;
+    private final Map<String, Drone> droneById;
+    private final Map<Integer, DroneServicePoint> servicePointById;
+    private final Map<String, DroneServicePoint> homeByDroneId;
+    private final Map<String, List<DroneForServicePoint.Availability>> availabilityByDroneId;
+    private final AvailabilityIndex availabilityIndex;
+    private final DroneColumns droneColumns;
+    private final RestrictedAirspace airspace;
+
+    // Indices of datasets whose payload is the same instance as in previous (if any) are taken from it
+    private WorldSnapshot(IlpSnapshot snapshot, long version, WorldSnapshot previous) {
+        IlpSnapshot old = previous == null ? null : previous.snapshot;
+        boolean sameDrones = old != null && old.getDronesPayload() == snapshot.getDronesPayload();
+        boolean sameServicePoints = old != null && old.getServicePointsPayload() == snapshot.getServicePointsPayload();
+        boolean sameAvailability = old != null
+                && old.getDronesForServicePointsPayload() == snapshot.getDronesForServicePointsPayload();
+        boolean sameRestrictedAreas = old != null
+                && old.getRestrictedAreasPayload() == snapshot.getRestrictedAreasPayload();
+
+        this.snapshot = snapshot;
+        this.version = version;
+        this.droneById = sameDrones ? previous.droneById : indexDrones(snapshot.getDrones());
+        this.droneColumns = sameDrones ? previous.droneColumns : DroneColumns.of(snapshot.getDrones());
+        this.servicePointById = sameServicePoints
+                ? previous.servicePointById
+                : indexServicePoints(snapshot.getServicePoints());
+        this.homeByDroneId = sameServicePoints && sameAvailability
+                ? previous.homeByDroneId
+                : indexHomes(snapshot.getDronesForServicePoints(), servicePointById);
+        this.availabilityByDroneId = sameAvailability
+                ? previous.availabilityByDroneId
+                : indexAvailability(snapshot.getDronesForServicePoints());
+        this.availabilityIndex = sameAvailability
+                ? previous.availabilityIndex
+                : AvailabilityIndex.of(availabilityByDroneId);
+        this.airspace = sameRestrictedAreas
+                ? previous.airspace
+                : FlightPathAlgorithm.prepare(snapshot.getRestrictedAreas());
+    }
+
+    // Same indices and version, different staleness
+    private WorldSnapshot(IlpSnapshot snapshot, WorldSnapshot indexed) {
+        this.snapshot = snapshot;
+        this.version = indexed.version;
+        this.droneById = indexed.droneById;
+        this.servicePointById = indexed.servicePointById;
+        this.homeByDroneId = indexed.homeByDroneId;
+        this.availabilityByDroneId = indexed.availabilityByDroneId;
+        this.availabilityIndex = indexed.availabilityIndex;
+        this.droneColumns = indexed.droneColumns;
+        this.airspace = indexed.airspace;
+    }
+
+    public static WorldSnapshot of(IlpSnapshot snapshot) {
+        return of(snapshot, null);
+    }
+
+    /**
+     * Wraps {@code snapshot}, reusing whatever {@code previous} already built for the same data.
+     *
+     * @param snapshot ILP data to index
+     * @param previous world snapshot being replaced, or null
+     * @return {@code previous} itself when it wraps the very same snapshot, a copy sharing its indices when only the
+     * staleness differs, otherwise a snapshot with the next version, reindexing only the datasets that changed
+     */
+    public static WorldSnapshot of(IlpSnapshot snapshot, WorldSnapshot previous) {
+        if (previous == null) return new WorldSnapshot(snapshot, 1, null);
+        if (previous.snapshot == snapshot) return previous;
+        if (snapshot.sameDataAs(previous.snapshot)) return new WorldSnapshot(snapshot, previous);
+        return new WorldSnapshot(snapshot, previous.version + 1, previous);
+    }
+
+    public List<Drone> getDrones() {
+        return snapshot.getDrones();
+    }
+
+    public List<DroneServicePoint> getServicePoints() {
+        return snapshot.getServicePoints();
+    }
+
+    public List<DroneForServicePoint> getDronesForServicePoints() {
+        return snapshot.getDronesForServicePoints();
+    }
+
+    public List<RestrictedArea> getRestrictedAreas() {
+        return snapshot.getRestrictedAreas();
+    }
+
+    public List<DroneForServicePoint.Availability> getAvailability(String droneId) {
+        return availabilityByDroneId.getOrDefault(droneId, List.of());
+    }
+
+    // First entry wins for a duplicated id, as /droneDetails has always answered
+    public static Map<String, Drone> indexDrones(List<Drone> drones) {
+        Map<String, Drone> byId = new HashMap<>();
+        if (drones != null) {
+            for (Drone d : drones) {
+                if (d != null) byId.putIfAbsent(d.getId(), d);
+            }
+        }
+        return Collections.unmodifiableMap(byId);
+    }
+
+    // First entry wins for a duplicated id
+    public static Map<Integer, DroneServicePoint> indexServicePoints(List<DroneServicePoint> servicePoints) {
+        Map<Integer, DroneServicePoint> byId = new HashMap<>();
+        if (servicePoints != null) {
+            for (DroneServicePoint sp : servicePoints) {
+                if (sp != null && sp.getId() != null) byId.putIfAbsent(sp.getId(), sp);
+            }
+        }
+        return Collections.unmodifiableMap(byId);
+    }
+
+    // Drones whose service point id matches no service point have no home
+    public static Map<String, DroneServicePoint> indexHomes(List<DroneForServicePoint> dronesForServicePoints,
+                                                            Map<Integer, DroneServicePoint> servicePointById) {
+        Map<String, DroneServicePoint> homes = new HashMap<>();
+        if (dronesForServicePoints != null) {
+            for (DroneForServicePoint dfsp : dronesForServicePoints) {
+                if (dfsp == null || dfsp.getServicePointId() == null || dfsp.getDrones() == null) continue;
+                DroneServicePoint home = servicePointById.get(dfsp.getServicePointId());
+                if (home == null) continue;
+                for (DroneForServicePoint.DroneAvailability da : dfsp.getDrones()) {
+                    if (da != null && da.getId() != null) homes.put(da.getId(), home);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(homes);
+    }
+
+    // A drone listed at several service points is available in the union of its windows
+    public static Map<String, List<DroneForServicePoint.Availability>> indexAvailability(
+            List<DroneForServicePoint> dronesForServicePoints) {
+        Map<String, List<DroneForServicePoint.Availability>> windows = new HashMap<>();
+        if (dronesForServicePoints != null) {
+            for (DroneForServicePoint dfsp : dronesForServicePoints) {
+                if (dfsp == null || dfsp.getDrones() == null) continue;
+                for (DroneForServicePoint.DroneAvailability da : dfsp.getDrones()) {
+                    if (da == null || da.getAvailability() == null) continue;
+                    windows.computeIfAbsent(da.getId(), k -> new ArrayList<>()).addAll(Arrays.asList(da.getAvailability()));
+                }
+            }
+        }
+        windows.replaceAll((id, list) -> Collections.unmodifiableList(list));
+        return Collections.unmodifiableMap(windows);
+    }
+}
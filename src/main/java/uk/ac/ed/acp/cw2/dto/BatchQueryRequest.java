@@ -0,0 +1,22 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Several independent drone queries and drone lookups answered from the same ILP data in one call.
+ * Each entry of {@code queries} is one {@code /query} body, each entry of {@code droneIds} one {@code /droneDetails} id.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchQueryRequest {
+    @JsonProperty("queries")
+    private List<List<QueryRequest>> queries;
+
+    @JsonProperty("droneIds")
+    private List<String> droneIds;
+}
@@ -0,0 +1,22 @@
+package uk.ac.ed.acp.cw2.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.List;
+
+/**
+ * Answers to a {@link BatchQueryRequest}, in request order: {@code queries.get(i)} holds the matching drone ids
+ * for the i-th query and {@code drones.get(j)} the drone with the j-th id, or null when there is no such drone.
+ */
+@Getter
+@Builder
+public class BatchQueryResponse {
+    @JsonProperty("queries")
+    private final List<String[]> queries;
+
+    @JsonProperty("drones")
+    private final List<Drone> drones;
+}
@@ -0,0 +1,327 @@
+package uk.ac.ed.acp.cw2.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes ILP JSON responses token by token straight into entities, without binding an intermediate DTO array.
+ * Unknown fields are skipped; anything the entities can't be built without (ids, nested objects and arrays,
+ * well-formed values) fails the whole payload with a {@link JsonMappingException} pointing at the offending token.
+ */
+public final class IlpStreamingDecoder {
+
+    // The caller owns the stream (it may still need to drain or hash it), so parsers must not close it
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private IlpStreamingDecoder() {}
+
+    public static List<Drone> decodeDrones(InputStream in) throws IOException {
+        return decodeArray(in, IlpStreamingDecoder::readDrone);
+    }
+
+    public static List<DroneServicePoint> decodeServicePoints(InputStream in) throws IOException {
+        return decodeArray(in, IlpStreamingDecoder::readServicePoint);
+    }
+
+    public static List<DroneForServicePoint> decodeDronesForServicePoints(InputStream in) throws IOException {
+        return decodeArray(in, IlpStreamingDecoder::readDroneForServicePoint);
+    }
+
+    public static List<RestrictedArea> decodeRestrictedAreas(InputStream in) throws IOException {
+        return decodeArray(in, IlpStreamingDecoder::readRestrictedArea);
+    }
+
+    private static <T> List<T> decodeArray(InputStream in, ObjectReader<T> reader) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) throw error(p, "Expected a JSON array");
+            List<T> out = new ArrayList<>();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                out.add(readObject(p, reader));
+            }
+            return out;
+        }
+    }
+
+    // ---- entities
+
+    private static Drone readDrone(JsonParser p) throws IOException {
+        Drone.DroneBuilder drone = Drone.builder();
+        boolean hasCapability = false;
+        String id = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> id = text(p);
+                case "name" -> drone.name(text(p));
+                case "capability" -> {
+                    readObject(p, c -> readCapability(c, drone));
+                    hasCapability = true;
+                }
+                default -> p.skipChildren();
+            }
+        }
+        if (id == null) throw error(p, "Drone without id");
+        if (!hasCapability) throw error(p, "Drone " + id + " without capability");
+        return drone.id(id).build();
+    }
+
+    private static Drone.DroneBuilder readCapability(JsonParser p, Drone.DroneBuilder drone) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "cooling" -> drone.cooling(bool(p));
+                case "heating" -> drone.heating(bool(p));
+                case "capacity" -> drone.capacity(decimal(p));
+                case "maxMoves" -> drone.maxMoves(integer(p));
+                case "costPerMove" -> drone.costPerMove(decimal(p));
+                case "costInitial" -> drone.costInitial(decimal(p));
+                case "costFinal" -> drone.costFinal(decimal(p));
+                default -> p.skipChildren();
+            }
+        }
+        return drone;
+    }
+
+    private static DroneServicePoint readServicePoint(JsonParser p) throws IOException {
+        DroneServicePoint.DroneServicePointBuilder sp = DroneServicePoint.builder();
+        LngLat location = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> sp.id(integer(p));
+                case "name" -> sp.name(text(p));
+                case "location" -> location = readObject(p, IlpStreamingDecoder::readLngLat);
+                default -> p.skipChildren();
+            }
+        }
+        if (location == null) throw error(p, "Service point without location");
+        return sp.location(location).build();
+    }
+
+    private static LngLat readLngLat(JsonParser p) throws IOException {
+        LngLat.LngLatBuilder position = LngLat.builder();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "lng" -> position.lng(decimal(p));
+                case "lat" -> position.lat(decimal(p));
+                default -> p.skipChildren();
+            }
+        }
+        return position.build();
+    }
+
+    private static DroneForServicePoint readDroneForServicePoint(JsonParser p) throws IOException {
+        DroneForServicePoint.DroneForServicePointBuilder dfsp = DroneForServicePoint.builder();
+        List<DroneForServicePoint.DroneAvailability> drones = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "servicePointId" -> dfsp.servicePointId(integer(p));
+                case "drones" -> drones = readList(p, IlpStreamingDecoder::readDroneAvailability);
+                default -> p.skipChildren();
+            }
+        }
+        if (drones == null) throw error(p, "Drones-for-service-point entry without drones");
+        return dfsp.drones(drones.toArray(new DroneForServicePoint.DroneAvailability[0])).build();
+    }
+
+    private static DroneForServicePoint.DroneAvailability readDroneAvailability(JsonParser p) throws IOException {
+        DroneForServicePoint.DroneAvailability.DroneAvailabilityBuilder da = DroneForServicePoint.DroneAvailability.builder();
+        List<DroneForServicePoint.Availability> availability = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> da.id(text(p));
+                case "availability" -> availability = readList(p, IlpStreamingDecoder::readAvailability);
+                default -> p.skipChildren();
+            }
+        }
+        if (availability == null) throw error(p, "Drone availability without availability windows");
+        return da.availability(availability.toArray(new DroneForServicePoint.Availability[0])).build();
+    }
+
+    private static DroneForServicePoint.Availability readAvailability(JsonParser p) throws IOException {
+        DroneForServicePoint.Availability.AvailabilityBuilder a = DroneForServicePoint.Availability.builder();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "dayOfWeek" -> a.dayOfWeek(dayOfWeek(p));
+                case "from" -> a.from(time(p));
+                case "until" -> a.until(time(p));
+                default -> p.skipChildren();
+            }
+        }
+        return a.build();
+    }
+
+    private static RestrictedArea readRestrictedArea(JsonParser p) throws IOException {
+        RestrictedArea.RestrictedAreaBuilder area = RestrictedArea.builder();
+        RestrictedArea.limits limits = null;
+        List<RestrictedArea.vertices> vertices = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "name" -> area.name(text(p));
+                case "id" -> area.id(integer(p));
+                case "limits" -> limits = readObject(p, IlpStreamingDecoder::readLimits);
+                case "vertices" -> vertices = readList(p, IlpStreamingDecoder::readVertex);
+                default -> p.skipChildren();
+            }
+        }
+        if (limits == null) throw error(p, "Restricted area without limits");
+        if (vertices == null) throw error(p, "Restricted area without vertices");
+        return area.limits(limits).vertices(vertices.toArray(new RestrictedArea.vertices[0])).build();
+    }
+
+    private static RestrictedArea.limits readLimits(JsonParser p) throws IOException {
+        RestrictedArea.limits.limitsBuilder limits = RestrictedArea.limits.builder();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "lower" -> limits.lower(integer(p));
+                case "upper" -> limits.upper(integer(p));
+                default -> p.skipChildren();
+            }
+        }
+        return limits.build();
+    }
+
+    private static RestrictedArea.vertices readVertex(JsonParser p) throws IOException {
+        RestrictedArea.vertices.verticesBuilder vertex = RestrictedArea.vertices.builder();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "lng" -> vertex.lng(decimal(p));
+                case "lat" -> vertex.lat(decimal(p));
+                default -> p.skipChildren();
+            }
+        }
+        return vertex.build();
+    }
+
+    // ---- structure
+
+    @FunctionalInterface
+    private interface ObjectReader<T> {
+        // Called with the parser on START_OBJECT; must leave it on the matching END_OBJECT
+        T read(JsonParser p) throws IOException;
+    }
+
+    private static <T> T readObject(JsonParser p, ObjectReader<T> reader) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) throw error(p, "Expected a JSON object");
+        return reader.read(p);
+    }
+
+    private static <T> List<T> readList(JsonParser p, ObjectReader<T> reader) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) throw error(p, "Expected a JSON array");
+        List<T> out = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            out.add(readObject(p, reader));
+        }
+        return out;
+    }
+
+    // ---- scalars (null stays null, strings are coerced the way Jackson data binding would)
+
+    private static String text(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t.isScalarValue()) return p.getText();
+        throw error(p, "Expected a text value");
+    }
+
+    private static Double decimal(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t.isNumeric()) return p.getDoubleValue();
+        if (t == JsonToken.VALUE_STRING) {
+            try {
+                return Double.valueOf(p.getText().trim());
+            } catch (NumberFormatException e) {
+                throw error(p, "Not a number: " + p.getText());
+            }
+        }
+        throw error(p, "Expected a number");
+    }
+
+    private static Integer integer(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t == JsonToken.VALUE_NUMBER_INT) return p.getIntValue();
+        if (t == JsonToken.VALUE_NUMBER_FLOAT) return (int) p.getDoubleValue();
+        if (t == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.valueOf(p.getText().trim());
+            } catch (NumberFormatException e) {
+                throw error(p, "Not an integer: " + p.getText());
+            }
+        }
+        throw error(p, "Expected an integer");
+    }
+
+    private static Boolean bool(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t == JsonToken.VALUE_TRUE) return Boolean.TRUE;
+        if (t == JsonToken.VALUE_FALSE) return Boolean.FALSE;
+        if (t == JsonToken.VALUE_STRING) {
+            String s = p.getText().trim();
+            if (s.equalsIgnoreCase("true")) return Boolean.TRUE;
+            if (s.equalsIgnoreCase("false")) return Boolean.FALSE;
+        }
+        throw error(p, "Expected a boolean");
+    }
+
+    private static DayOfWeek dayOfWeek(JsonParser p) throws IOException {
+        String s = text(p);
+        if (s == null) return null;
+        try {
+            return DayOfWeek.valueOf(s.trim());
+        } catch (IllegalArgumentException e) {
+            throw error(p, "Not a day of week: " + s);
+        }
+    }
+
+    private static LocalTime time(JsonParser p) throws IOException {
+        String s = text(p);
+        if (s == null) return null;
+        try {
+            return LocalTime.parse(s.trim());
+        } catch (DateTimeException e) {
+            throw error(p, "Not a time: " + s);
+        }
+    }
+
+    private static JsonMappingException error(JsonParser p, String message) {
+        return JsonMappingException.from(p, message);
+    }
+}
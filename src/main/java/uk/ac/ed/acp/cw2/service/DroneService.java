@@ -3,12 +3,26 @@ package uk.ac.ed.acp.cw2.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.data.AvailabilityIndex;
+import uk.ac.ed.acp.cw2.data.CapacityLedger;
 import uk.ac.ed.acp.cw2.data.Distance;
-import uk.ac.ed.acp.cw2.data.DynamicQueries;
+import uk.ac.ed.acp.cw2.data.DroneColumns;
+import uk.ac.ed.acp.cw2.data.DronePredicate;
+import uk.ac.ed.acp.cw2.data.DroneQuery;
 import uk.ac.ed.acp.cw2.data.FlightPathAlgorithm;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+import uk.ac.ed.acp.cw2.data.QueryResultCache;
+import uk.ac.ed.acp.cw2.data.RestrictedAirspace;
+import uk.ac.ed.acp.cw2.data.WorldSnapshot;
+import uk.ac.ed.acp.cw2.dto.BatchQueryRequest;
+import uk.ac.ed.acp.cw2.dto.BatchQueryResponse;
 import uk.ac.ed.acp.cw2.dto.CalculatedDeliveryPathRequest;
 import uk.ac.ed.acp.cw2.dto.LngLat;
 import uk.ac.ed.acp.cw2.dto.MedDispatchRecRequest;
@@ -19,14 +33,16 @@ import uk.ac.ed.acp.cw2.entity.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
-public class DroneService {
+public class DroneService implements MeterBinder {
 
     private static final Logger logger = LoggerFactory.getLogger(DroneService.class);
 
@@ -38,6 +54,34 @@ public class DroneService {
         return t;
     });
 
+    // Grid step of FlightPathAlgorithm. Its compass moves snap to the eight neighbouring cells, so the longest
+    // move is a diagonal one.
+    private static final double STEP = 1.5E-4;
+    private static final double LONGEST_MOVE = Math.sqrt(2) * STEP;
+    // Distance a leg covers besides its moves: the start and the goal are each snapped to a cell up to half a
+    // diagonal away, and a search ends once within a step of the goal's cell
+    private static final double LEG_SLACK = STEP + LONGEST_MOVE;
+
+    private final QueryResultCache queryCache;
+
+    public DroneService() {
+        this(1024);
+    }
+
+    @Autowired
+    public DroneService(@Value("${ilp.query-cache.max-entries:1024}") int queryCacheMaxEntries) {
+        this.queryCache = new QueryResultCache(queryCacheMaxEntries);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        queryCache.bindTo(registry);
+    }
+
+    public QueryResultCache getQueryCache() {
+        return queryCache;
+    }
+
     public String[] dronesWithCooling(Boolean state, List<Drone> drones) {
         // Filter by cooling capability and return matching IDs
         return drones.stream()
@@ -46,6 +90,11 @@ public class DroneService {
                 .toArray(String[]::new);
     }
 
+    public String[] dronesWithCooling(Boolean state, DroneColumns columns) {
+        if (state == null) return dronesWithCooling(null, columns.drones());
+        return columns.ids(columns.bool("cooling").equalTo(state));
+    }
+
     public Drone droneDetails(String id, List<Drone> drones) {
         // Find a drone by id, then map to existing Drone shape
         return drones.stream()
@@ -54,130 +103,192 @@ public class DroneService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Drone not found"));
     }
 
+    // Same drone as the list-based lookup (the first one listed with the id), from the snapshot's index
+    public Drone droneDetails(String id, WorldSnapshot world) {
+        Drone drone = world.getDroneById().get(id);
+        if (drone == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Drone not found");
+        return drone;
+    }
+
     //    "maxCost": 13.5
     public String[] queryAvailableDrones(List<MedDispatchRecRequest> req, List<Drone> drones,
                                          List<DroneForServicePoint> dronesForServicePoints) {
-        List<Drone> availableDrones = new ArrayList<>(drones);
+        return queryAvailableDrones(req, drones,
+                AvailabilityIndex.of(WorldSnapshot.indexAvailability(dronesForServicePoints)), Map.of());
+    }
+
+    // Capacity is tracked in a per-request ledger, so the shared drones can be passed as they are
+    public String[] queryAvailableDrones(List<MedDispatchRecRequest> req, List<Drone> drones, WorldSnapshot world) {
+        return queryAvailableDrones(req, drones, world.getAvailabilityIndex(), world.getHomeByDroneId());
+    }
 
+    // homes: each drone's home service point, used to bound the cost of reaching a delivery (may be empty)
+    private String[] queryAvailableDrones(List<MedDispatchRecRequest> req, List<Drone> drones,
+                                          AvailabilityIndex availability, Map<String, DroneServicePoint> homes) {
         if (req == null) {
-            return availableDrones.stream().map(Drone::getId).toArray(String[]::new);
+            return drones.stream().map(Drone::getId).toArray(String[]::new);
         }
 
-        // Build a map of drone id -> list of availability windows for fast lookup
-        Map<String, List<DroneForServicePoint.Availability>> availabilityMap = new HashMap<>();
-        for (DroneForServicePoint sp : dronesForServicePoints) {
-            for (DroneForServicePoint.DroneAvailability da : sp.getDrones()) {
-                List<DroneForServicePoint.Availability> list = availabilityMap.computeIfAbsent(da.getId(), k -> new ArrayList<>());
-                list.addAll(Arrays.asList(da.getAvailability()));
-            }
-        }
+        // Slots (positions in drones) of the drones still able to take every dispatch so far, in fleet order
+        int[] candidates = new int[drones.size()];
+        for (int slot = 0; slot < candidates.length; slot++) candidates[slot] = slot;
+        int count = candidates.length;
+        CapacityLedger ledger = new CapacityLedger(drones);
 
         for (MedDispatchRecRequest r : req) {
             Double requiredCapacity = r.getRequirements().getCapacity();
             boolean requiresCooling = r.getRequirements().isCooling();
             boolean requiresHeating = r.getRequirements().isHeating();
+            Double maxCost = r.getRequirements().getMaxCost();
             LocalDate date = r.getDate();
             LocalTime time = r.getTime();
-            // Use a conservative lower-bound estimate for cost when maxCost is provided:
-            // minCostEstimate = costInitial + costFinal + costPerMove * distance(servicePoint, delivery)/step
-
-            availableDrones = availableDrones.stream()
-                    .filter(d -> {
-                        if (date == null && time == null) return true; // no constraint
-
-                        List<DroneForServicePoint.Availability> avails = availabilityMap.getOrDefault(d.getId(), Collections.emptyList());
-
-                        // If date provided, check day-of-week match; if time provided, also check the time window
-                        if (date != null) {
-                            DayOfWeek dow = date.getDayOfWeek();
-                            return avails.stream().anyMatch(a -> a.getDayOfWeek() == dow &&
-                                    (time == null || (!a.getFrom().isAfter(time) && !a.getUntil().isBefore(time))));
-                        } else { // date == null but time != null: accept any availability window that contains the time
-                            return avails.stream().anyMatch(a -> (!a.getFrom().isAfter(time) && !a.getUntil().isBefore(time)));
-                        }
-                    })
-                    // check cost BEFORE consuming capacity so we don't mutate drones that will be filtered out
-                    .filter(d -> {
-                        Double maxCost = r.getRequirements().getMaxCost();
-                        if (maxCost == null) return true;
-
-                        double costPerMove = d.getCostPerMove();
-                        double costInitial = d.getCostInitial();
-                        double costFinal = d.getCostFinal();
-                        int maxMoves = d.getMaxMoves();
-
-                        // if drone cannot make any move, it can't serve a delivery that requires movement
-                        if (maxMoves < 1) return false;
-
-                        double minEstimate = costInitial + costFinal + costPerMove;
-                        return Double.compare(minEstimate, maxCost) <= 0;
-                    })
-                    .filter(d -> {
-                        Double cap = d.getCapacity();
-
-                        if (Double.compare(cap, requiredCapacity) >= 0) {
-                            double newCap = cap - requiredCapacity;
-                            d.setCapacity(newCap);
-                            return true;
-                        }
-                        return false;
-                    })
-                    .filter(d -> !requiresCooling || Boolean.TRUE.equals(d.getCooling()))
-                    .filter(d -> !requiresHeating || Boolean.TRUE.equals(d.getHeating()))
-                    .toList();
+            // date gives the day of week, time the time of day; either may be missing
+            Predicate<String> available = availability.availableAt(date == null ? null : date.getDayOfWeek(), time);
+
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int slot = candidates[i];
+                Drone d = drones.get(slot);
+                if (!available.test(d.getId())) continue;
+                // check cost BEFORE consuming capacity so we don't consume it for drones that will be filtered out
+                if (!withinMaxCost(d, maxCost, homes.get(d.getId()), r.getDelivery())) continue;
+                if (!ledger.tryConsume(slot, requiredCapacity)) continue;
+                if (requiresCooling && !Boolean.TRUE.equals(d.getCooling())) continue;
+                if (requiresHeating && !Boolean.TRUE.equals(d.getHeating())) continue;
+                candidates[kept++] = slot;
+            }
+            count = kept;
         }
 
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) ids[i] = drones.get(candidates[i]).getId();
+        return ids;
+    }
 
-        return availableDrones.stream()
-                .map(Drone::getId)
-                .toArray(String[]::new);
+    // Use a conservative lower-bound estimate for cost when maxCost is provided:
+    // minCostEstimate = costInitial + costFinal + costPerMove * minimum moves for the round trip home -> delivery -> home
+    private static boolean withinMaxCost(Drone d, Double maxCost, DroneServicePoint home, LngLat delivery) {
+        if (maxCost == null) return true;
+
+        double costPerMove = d.getCostPerMove();
+        double costInitial = d.getCostInitial();
+        double costFinal = d.getCostFinal();
+        int maxMoves = d.getMaxMoves();
+
+        // if drone cannot make any move, it can't serve a delivery that requires movement
+        if (maxMoves < 1) return false;
+
+        double minEstimate = costInitial + costFinal + costPerMove * Math.max(1, minRoundTripMoves(home, delivery));
+        return Double.compare(minEstimate, maxCost) <= 0;
+    }
+
+    /**
+     * Fewest moves any flight from {@code home} to {@code delivery} and back can take. No move covers more than a
+     * grid diagonal, and part of each leg is covered by snapping to the grid and stopping near the goal, so each
+     * leg needs at least (distance - (1 + sqrt 2) steps) / (sqrt 2 steps) moves.
+     *
+     * @return 0 when the drone has no known home or the delivery has no position, as then nothing is known
+     */
+    static double minRoundTripMoves(DroneServicePoint home, LngLat delivery) {
+        if (home == null || !hasPosition(home.getLocation()) || !hasPosition(delivery)) return 0;
+        double oneWay = (Distance.calculateEuclideanDistance(home.getLocation(), delivery) - LEG_SLACK) / LONGEST_MOVE;
+        return 2 * Math.max(0, oneWay);
+    }
+
+    private static boolean hasPosition(LngLat p) {
+        return p != null && p.getLng() != null && p.getLat() != null;
     }
 
     public String[] queryAsPath(String attributeName, String value, List<Drone> drones) {
-        List<String> matched = new ArrayList<>();
-        for (Drone d : drones) {
-            Object attrVal = DynamicQueries.readProperty(d, attributeName);
-            if (DynamicQueries.attributeEquals(attrVal, value)) {
-                matched.add(d.getId());
-            }
+        return queryAsPath(attributeName, value, DroneColumns.of(drones));
+    }
+
+    public String[] queryAsPath(String attributeName, String value, DroneColumns columns) {
+        DronePredicate equal = compileQuery(() -> DroneQuery.compile(attributeName, "=", value));
+        return columns.ids(equal.select(columns));
+    }
+
+    public String[] queryAsPath(String attributeName, String value, WorldSnapshot world) {
+        return query(List.of(new QueryRequest(attributeName, "=", value)), world);
+    }
+
+    public String[] query(List<QueryRequest> query, WorldSnapshot world) {
+        DroneQuery compiled = compileQuery(() -> DroneQuery.compile(query));
+        return queryCache.get(world, compiled, () -> compiled.matchingIds(world.getDroneColumns()));
+    }
+
+    /**
+     * Answers every query and drone lookup of a batch from the same world snapshot. All queries are compiled
+     * before any is evaluated, so a bad one fails the whole batch with 400. A condition shared by several queries
+     * is selected once for the batch, and every query still goes through the result cache.
+     *
+     * @param batch queries and drone ids, either may be null or empty
+     * @param world snapshot all answers are computed from
+     * @return answers in request order, null for a drone id that does not exist
+     */
+    public BatchQueryResponse batchQuery(BatchQueryRequest batch, WorldSnapshot world) {
+        List<List<QueryRequest>> queries = batch.getQueries() == null ? List.of() : batch.getQueries();
+        List<DroneQuery> compiled = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            List<QueryRequest> query = queries.get(i);
+            int index = i;
+            compiled.add(compileQuery(() -> {
+                if (query == null) throw new IllegalArgumentException("Query " + index + " is null");
+                try {
+                    return DroneQuery.compile(query);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Query " + index + ": " + e.getMessage(), e);
+                }
+            }));
+        }
+
+        DroneColumns columns = world.getDroneColumns();
+        Map<DronePredicate, BitSet> selected = new HashMap<>();
+        List<String[]> ids = new ArrayList<>(compiled.size());
+        for (DroneQuery query : compiled) {
+            ids.add(queryCache.get(world, query, () -> query.matchingIds(columns, selected)));
         }
-        return matched.toArray(new String[0]);
+
+        List<String> droneIds = batch.getDroneIds() == null ? List.of() : batch.getDroneIds();
+        List<Drone> drones = new ArrayList<>(droneIds.size());
+        for (String id : droneIds) {
+            drones.add(id == null ? null : world.getDroneById().get(id));
+        }
+
+        return BatchQueryResponse.builder().queries(ids).drones(drones).build();
     }
 
     public String[] query(List<QueryRequest> query, List<Drone> drones) {
-        List<Drone> availableDrones = new ArrayList<>(drones);
-        List<String> droneIDs = new ArrayList<>();
-        for (QueryRequest q : query) {
-            Iterator<Drone> iterator = availableDrones.iterator();
-            while (iterator.hasNext()) {
-                Drone d = iterator.next();
-                Object attrVal = DynamicQueries.readProperty(d, q.getAttribute());
-                boolean match = false;
-                if (Objects.equals(q.getOperator(), "=")) {
-                    match = DynamicQueries.attributeEquals(attrVal, q.getValue());
-                }
-                 else if (Objects.equals(q.getOperator(), "!=")) {
-                    match = !DynamicQueries.attributeEquals(attrVal, q.getValue());
-                }
-                 else if (Objects.equals(q.getOperator(), ">")) {
-                    match = DynamicQueries.attributeGreaterThan(attrVal, q.getValue());
-                }
-                 else if (Objects.equals(q.getOperator(), "<")) {
-                    match = DynamicQueries.attributeLessThan(attrVal, q.getValue());
-                }
-                 if (match) {
-                    droneIDs.add(d.getId());
-                    iterator.remove();
-                 }
-            }
+        return query(query, DroneColumns.of(drones));
+    }
+
+    public String[] query(List<QueryRequest> query, DroneColumns columns) {
+        return compileQuery(() -> DroneQuery.compile(query)).matchingIds(columns);
+    }
+
+    // Values are parsed once up front, so a bad one is the client's mistake rather than a per-drone failure
+    private static <T> T compileQuery(Supplier<T> compile) {
+        try {
+            return compile.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
-        return droneIDs.toArray(new String[0]);
     }
 
     public CalculatedDeliveryPathRequest calcDeliveryPath(List<MedDispatchRecRequest> req, List<Drone> drones,
                                                           List<DroneServicePoint> servicePoints,
                                                           List<RestrictedArea> restrictedAreas, String[] droneIDs,
                                                           List<DroneForServicePoint> dronesForServicePoints) {
+        IlpSnapshot snapshot = new IlpSnapshot(drones, servicePoints, dronesForServicePoints, restrictedAreas, Instant.now());
+        return calcDeliveryPath(req, WorldSnapshot.of(snapshot), droneIDs);
+    }
+
+    public CalculatedDeliveryPathRequest calcDeliveryPath(List<MedDispatchRecRequest> req, WorldSnapshot world,
+                                                          String[] droneIDs) {
+        List<Drone> drones = world.getDrones();
+        List<DroneServicePoint> servicePoints = world.getServicePoints();
+        List<DroneForServicePoint> dronesForServicePoints = world.getDronesForServicePoints();
+        List<RestrictedArea> restrictedAreas = world.getRestrictedAreas();
 
         // lightweight instrumentation: request correlation + end-to-end timing
         final String requestId = UUID.randomUUID().toString();
@@ -214,9 +325,10 @@ public class DroneService {
             return CalculatedDeliveryPathRequest.builder().totalCost(0.0).totalMoves(0).dronePaths(new DronePaths[0]).diagnostics(diag).build();
         }
 
-        // Map drone id -> Drone entity for cost lookups
-        Map<String, Drone> droneById = new HashMap<>();
-        for (Drone d : drones) droneById.put(d.getId(), d);
+        // drone id -> Drone entity for cost lookups
+        Map<String, Drone> droneById = world.getDroneById();
+        // restricted areas prepared once per ILP payload, shared by every leg
+        RestrictedAirspace airspace = world.getAirspace();
 
         // Evenly distribute requests to drone IDs
         Map<String, List<MedDispatchRecRequest>> assignments = new LinkedHashMap<>();
@@ -233,46 +345,18 @@ public class DroneService {
         // log assignments for diagnostics
         logger.info("Assignments built: {}", assignments.entrySet().stream().map(e -> e.getKey() + "->" + e.getValue().size()).toList());
 
-        Map<String, DroneServicePoint> droneHomeById = new HashMap<>();
-        if (dronesForServicePoints != null && servicePoints != null) {
-            for (DroneForServicePoint dfsp : dronesForServicePoints) {
-                // find the matching service point (dfsp.servicePointId -> DroneServicePoint.getId())
-                Integer spId = dfsp.getServicePointId();
-                DroneServicePoint matched = null;
-                if (spId != null) {
-                    for (DroneServicePoint sp : servicePoints) {
-                        if (sp != null && Objects.equals(sp.getId(), spId)) {
-                            matched = sp;
-                            break;
-                        }
-                    }
-                }
+        Map<String, DroneServicePoint> droneHomeById = world.getHomeByDroneId();
 
-                // map every drone availability entry's id to the matched service point
-                if (dfsp.getDrones() != null) {
-                    for (DroneForServicePoint.DroneAvailability da : dfsp.getDrones()) {
-                        if (da != null && da.getId() != null && matched != null) {
-                            droneHomeById.put(da.getId(), matched);
-                        }
-                    }
-                }
-            }
+        if (logger.isDebugEnabled()) {
+            logger.debug("droneHomeById mapping (version {}): {}", world.getVersion(), droneHomeById.entrySet().stream().map(e -> e.getKey() + "->" + (e.getValue()==null?"null":e.getValue().getId())).toList());
+            logger.debug("servicePoints: {}", servicePoints.stream().map(sp -> {
+                if (sp.getLocation() == null) return sp.getId() + "->location=null";
+                LngLat l = sp.getLocation();
+                return sp.getId() + "->(" + l.getLng() + "," + l.getLat() + ")";
+            }).toList());
+            logger.debug("dronesForServicePoints count: {}", dronesForServicePoints.size());
         }
 
-        // log droneHomeById for diagnostics
-        logger.info("droneHomeById mapping: {}", droneHomeById.entrySet().stream().map(e -> e.getKey() + "->" + (e.getValue()==null?"null":e.getValue().getId())).toList());
-
-        // log servicePoints for diagnostics
-        logger.info("servicePoints: {}", servicePoints.stream().map(sp -> {
-            if (sp == null) return "null";
-            if (sp.getLocation() == null) return sp.getId() + "->location=null";
-            LngLat l = sp.getLocation();
-            return sp.getId() + "->(" + l.getLng() + "," + l.getLat() + ")";
-        }).toList());
-
-        // log dronesForServicePoints for diagnostics
-        logger.info("dronesForServicePoints count: {}", dronesForServicePoints.size());
-
         int totalMoves = 0;
         double totalCost = 0.0;
         List<DronePaths> dronePaths = new ArrayList<>();
@@ -329,7 +413,7 @@ public class DroneService {
                         start = originSp.getLocation();
                         end = curr.getDelivery();
                         legsPlanned[0]++;
-                        List<LngLat> firstLeg = new ArrayList<>(safeFindPath(start, end, restrictedAreas, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
+                        List<LngLat> firstLeg = new ArrayList<>(safeFindPath(start, end, airspace, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
                         logger.info("Drone {}: firstLeg size from findPath(start={}, end={}) = {} (requestId={})", droneId, start, end, firstLeg.size(), requestId);
 
                         // hover at end -> duplicate last point on outbound leg
@@ -339,7 +423,7 @@ public class DroneService {
                         }
 
                         legsPlanned[0]++;
-                        List<LngLat> returnLeg = new ArrayList<>(safeFindPath(end, originSp.getLocation(), restrictedAreas, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
+                        List<LngLat> returnLeg = new ArrayList<>(safeFindPath(end, originSp.getLocation(), airspace, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
                         logger.info("Drone {}: returnLeg size from findPath(end={}, origin={}) = {} (requestId={})", droneId, end, originSp.getLocation(), returnLeg.size(), requestId);
 
                         // compute moves and cost for outbound leg
@@ -386,7 +470,7 @@ public class DroneService {
                         end = curr.getDelivery();
 
                         legsPlanned[0]++;
-                        List<LngLat> firstLeg = new ArrayList<>(safeFindPath(start, end, restrictedAreas, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
+                        List<LngLat> firstLeg = new ArrayList<>(safeFindPath(start, end, airspace, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
                         logger.info("Drone {}: firstLeg size (multi) from findPath(start={}, end={}) = {} (requestId={})", droneId, start, end, firstLeg.size(), requestId);
                         // hover at end -> duplicate last point on outbound leg
                         if (!firstLeg.isEmpty()) {
@@ -395,7 +479,7 @@ public class DroneService {
                         }
 
                         legsPlanned[0]++;
-                        List<LngLat> returnLeg = new ArrayList<>(safeFindPath(end, originSp.getLocation(), restrictedAreas, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
+                        List<LngLat> returnLeg = new ArrayList<>(safeFindPath(end, originSp.getLocation(), airspace, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
                         logger.info("Drone {}: returnLeg size (multi) from findPath(end={}, origin={}) = {} (requestId={})", droneId, end, originSp.getLocation(), returnLeg.size(), requestId);
 
                         // compute moves and cost for this delivery (concatenated round-trip)
@@ -443,7 +527,7 @@ public class DroneService {
                     start = originSp.getLocation();
                     end = curr.getDelivery();
                     legsPlanned[0]++;
-                    seg = new ArrayList<>(safeFindPath(start, end, restrictedAreas, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
+                    seg = new ArrayList<>(safeFindPath(start, end, airspace, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
                     logger.info("Drone {}: seg size (i==0) from findPath(start={}, end={}) = {} (requestId={})", droneId, start, end, seg.size(), requestId);
 
                     // hover at end -> duplicate last point
@@ -456,7 +540,7 @@ public class DroneService {
                     start = deliveries.get(i - 1).getDelivery();
                     end = curr.getDelivery();
                     legsPlanned[0]++;
-                    seg = new ArrayList<>(safeFindPath(start, end, restrictedAreas, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
+                    seg = new ArrayList<>(safeFindPath(start, end, airspace, requestId, aStarInvocations, straightLineFallbacks, legsFailed));
                     logger.info("Drone {}: seg size (middle) from findPath(start={}, end={}) = {} (requestId={})", droneId, start, end, seg.size(), requestId);
 
                     // hover at end -> duplicate last point
@@ -598,7 +682,7 @@ public class DroneService {
     // Wrapper that runs pathfinding off-thread with a timeout to avoid blocking the request thread.
     private List<LngLat> safeFindPath(LngLat start,
                                      LngLat goal,
-                                     List<RestrictedArea> restrictedAreas,
+                                     RestrictedAirspace airspace,
                                      String requestId,
                                      int[] aStarInvocations,
                                      int[] straightLineFallbacks,
@@ -610,7 +694,7 @@ public class DroneService {
         }
 
         aStarInvocations[0]++;
-        Callable<List<LngLat>> task = () -> FlightPathAlgorithm.findPath(start, goal, restrictedAreas);
+        Callable<List<LngLat>> task = () -> FlightPathAlgorithm.findPath(start, goal, airspace);
         Future<List<LngLat>> fut = PATH_EXECUTOR.submit(task);
         try {
             // 180s timeout per leg (allow longer A* runs but still bounded)
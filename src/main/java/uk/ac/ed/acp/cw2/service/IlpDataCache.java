@@ -0,0 +1,181 @@
+package uk.ac.ed.acp.cw2.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw2.controller.ILPRestController;
+import uk.ac.ed.acp.cw2.data.IlpDataset;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+import uk.ac.ed.acp.cw2.data.IlpSnapshotFile;
+import uk.ac.ed.acp.cw2.data.WorldSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache in front of ILPRestController holding the drones, service points, drones-for-service-points and
+ * restricted areas. The first caller loads the data synchronously; after that a background thread refreshes it
+ * every {@code ilp.cache.ttl} and request threads are always served the last good copy.
+ * <p>
+ * When {@code ilp.service.snapshot-path} is set, every changed snapshot is also written there; with
+ * {@code ilp.service.load-snapshot} the file is read at startup and served (as stale data) while the first refresh
+ * runs in the background, so requests are answered without waiting for, or even reaching, the ILP service.
+ * <p>
+ * The snapshot is held as a {@link WorldSnapshot} whose lookup indices are rebuilt only when the data changes;
+ * it is swapped in with a single volatile write, so request threads read it without locking.
+ */
+@Service
+public class IlpDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(IlpDataCache.class);
+
+    private final ILPRestController ilpRestController;
+    private final Duration ttl;
+    private final Path snapshotPath;
+    private final boolean loadSnapshot;
+
+    // Single daemon thread so refreshes never overlap and never keep the JVM alive
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.setName("ilp-cache-refresh");
+        return t;
+    });
+
+    private final Object loadLock = new Object();
+    private volatile WorldSnapshot world;
+    private boolean refreshScheduled;
+
+    @Autowired
+    public IlpDataCache(ILPRestController ilpRestController,
+                        @Value("${ilp.cache.ttl:5m}") Duration ttl,
+                        @Value("${ilp.service.snapshot-path:}") String snapshotPath,
+                        @Value("${ilp.service.load-snapshot:false}") boolean loadSnapshot) {
+        this.ilpRestController = ilpRestController;
+        this.ttl = ttl;
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.loadSnapshot = loadSnapshot;
+    }
+
+    // Serve the local copy straight away and revalidate it against ILP in the background
+    @PostConstruct
+    void loadLocalSnapshot() {
+        if (!loadSnapshot || snapshotPath == null) return;
+        if (!Files.isRegularFile(snapshotPath)) {
+            logger.info("No local ILP snapshot at {}, first request will fetch from ILP", snapshotPath);
+            return;
+        }
+
+        long startNs = System.nanoTime();
+        try {
+            // stale until the first refresh has revalidated it against ILP
+            IlpSnapshot local = IlpSnapshotFile.read(snapshotPath).withStaleDatasets(EnumSet.allOf(IlpDataset.class));
+            synchronized (loadLock) {
+                world = WorldSnapshot.of(local);
+                scheduleRefresh(0);
+            }
+            logger.info("Local ILP snapshot loaded from {} in {}ms (fetched at {}): drones={}, servicePoints={}, "
+                            + "dronesForServicePoints={}, restrictedAreas={}",
+                    snapshotPath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs), local.getFetchedAt(),
+                    local.getDrones().size(), local.getServicePoints().size(),
+                    local.getDronesForServicePoints().size(), local.getRestrictedAreas().size());
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable local ILP snapshot {}: {}", snapshotPath, e.toString());
+        }
+    }
+
+    /**
+     * Returns the current snapshot, loading it on the calling thread if nothing has been fetched yet.
+     *
+     * @return the last good copy of the ILP reference data
+     */
+    public IlpSnapshot snapshot() {
+        return world().getSnapshot();
+    }
+
+    /**
+     * Returns the current snapshot with its lookup indices, loading it on the calling thread if nothing has been
+     * fetched yet.
+     *
+     * @return the last good copy of the ILP reference data, indexed
+     */
+    public WorldSnapshot world() {
+        WorldSnapshot current = world;
+        if (current != null) return current;
+
+        synchronized (loadLock) {
+            if (world == null) {
+                world = WorldSnapshot.of(load(null));
+                scheduleRefresh(Math.max(1, ttl.toMillis()));
+            }
+            return world;
+        }
+    }
+
+    // Caller holds loadLock
+    private void scheduleRefresh(long initialDelayMs) {
+        if (refreshScheduled) return;
+        refreshScheduled = true;
+        long ttlMs = Math.max(1, ttl.toMillis());
+        refresher.scheduleWithFixedDelay(this::refresh, initialDelayMs, ttlMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Revalidate against the current snapshot; a failed refresh keeps serving the old one
+    void refresh() {
+        WorldSnapshot current = world;
+        try {
+            world = WorldSnapshot.of(load(current.getSnapshot()), current);
+        } catch (RuntimeException e) {
+            logger.warn("ILP refresh failed, keeping snapshot fetched at {}: {}",
+                    current.getSnapshot().getFetchedAt(), e.toString());
+        }
+    }
+
+    private IlpSnapshot load(IlpSnapshot previous) {
+        long startNs = System.nanoTime();
+        IlpSnapshot loaded = ilpRestController.fetchAllFromIlp(previous);
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+        if (loaded == previous) {
+            logger.debug("ILP data unchanged after {}ms, keeping snapshot fetched at {}", durationMs, previous.getFetchedAt());
+            return previous;
+        }
+        if (loaded.sameDataAs(previous)) {
+            // only staleness changed: ILP failed (or recovered) without any dataset changing
+            logger.debug("ILP data unchanged after {}ms, stale datasets now {}", durationMs, loaded.getStaleDatasets());
+            return loaded;
+        }
+        logger.info("ILP snapshot loaded in {}ms: drones={}, servicePoints={}, dronesForServicePoints={}, restrictedAreas={}",
+                durationMs,
+                loaded.getDrones().size(), loaded.getServicePoints().size(),
+                loaded.getDronesForServicePoints().size(), loaded.getRestrictedAreas().size());
+        if (snapshotPath != null) {
+            // off the request thread; the single refresher thread also keeps writes in order
+            refresher.execute(() -> persist(loaded));
+        }
+        return loaded;
+    }
+
+    private void persist(IlpSnapshot toWrite) {
+        try {
+            IlpSnapshotFile.write(toWrite, snapshotPath);
+            logger.debug("ILP snapshot fetched at {} written to {}", toWrite.getFetchedAt(), snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Could not write local ILP snapshot {}: {}", snapshotPath, e.toString());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+package uk.ac.ed.acp.cw2.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ILP HTTP client pool limits, timeouts and metrics.
+ */
+class IlpHttpClientInterceptorTest {
+
+    private static final ClientHttpRequestExecution OK =
+            (request, body) -> new MockClientHttpResponse("[]".getBytes(), HttpStatus.OK);
+
+    private final MockClientHttpRequest request =
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("https://ilp.example/drones"));
+
+    @Test
+    void intercept_holdsPermitUntilResponseIsClosed() throws IOException {
+        IlpHttpClientInterceptor interceptor = new IlpHttpClientInterceptor(2, Duration.ofMillis(50), Duration.ofSeconds(5));
+
+        ClientHttpResponse response = interceptor.intercept(request, new byte[0], OK);
+        assertEquals(1, interceptor.getActiveConnections());
+
+        response.close();
+        response.close(); // closing twice must not hand out an extra permit
+        assertEquals(0, interceptor.getActiveConnections());
+    }
+
+    @Test
+    void intercept_timesOut_whenHostPoolIsExhausted() throws IOException {
+        IlpHttpClientInterceptor interceptor = new IlpHttpClientInterceptor(1, Duration.ofMillis(50), Duration.ofSeconds(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        interceptor.bindTo(registry);
+
+        ClientHttpResponse held = interceptor.intercept(request, new byte[0], OK);
+        assertThrows(SocketTimeoutException.class, () -> interceptor.intercept(request, new byte[0], OK));
+        assertEquals(1.0, registry.get("ilp.http.timeouts").tag("kind", "pool").functionCounter().count());
+        assertEquals(1.0, registry.get("ilp.http.connections.active").gauge().value());
+
+        // another host has its own pool
+        MockClientHttpRequest other = new MockClientHttpRequest(HttpMethod.GET, URI.create("https://other.example/drones"));
+        interceptor.intercept(other, new byte[0], OK).close();
+
+        held.close();
+        interceptor.intercept(request, new byte[0], OK).close();
+        assertEquals(0, interceptor.getActiveConnections());
+    }
+
+    @Test
+    void intercept_releasesPermit_whenExecutionFails() {
+        IlpHttpClientInterceptor interceptor = new IlpHttpClientInterceptor(1, Duration.ofMillis(50), Duration.ofSeconds(5));
+
+        assertThrows(IOException.class, () -> interceptor.intercept(request, new byte[0], (r, b) -> {
+            throw new IOException("connection reset");
+        }));
+        assertEquals(0, interceptor.getActiveConnections());
+    }
+
+    @Test
+    void body_isCutOff_afterTotalTimeout() throws Exception {
+        IlpHttpClientInterceptor interceptor = new IlpHttpClientInterceptor(1, Duration.ofMillis(50), Duration.ofMillis(20));
+
+        try (ClientHttpResponse response = interceptor.intercept(request, new byte[0], OK)) {
+            Thread.sleep(50);
+            assertThrows(SocketTimeoutException.class, () -> response.getBody().read());
+        }
+        assertEquals(1, interceptor.getTimeoutCount());
+    }
+}
@@ -0,0 +1,220 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.data.IlpCircuitBreaker;
+import uk.ac.ed.acp.cw2.data.IlpDataset;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Integration tests for the concurrent, conditional refresh of the ILP datasets.
+ *
+ * The real RestTemplate bean is bound to a MockRestServiceServer so the requests (including their
+ * If-None-Match headers) and responses are exercised end to end without the network.
+ */
+@SpringBootTest
+class IlpConditionalFetchTest {
+
+    private static final String DRONES = """
+            [{"name":"DroneOne","id":"1","capability":{"cooling":true,"heating":false,"capacity":5.0,
+              "maxMoves":100,"costPerMove":1.0,"costInitial":1.0,"costFinal":1.0}}]
+            """;
+    private static final String DRONES_CHANGED = DRONES.replace("\"capacity\":5.0", "\"capacity\":7.0");
+    private static final String SERVICE_POINTS = """
+            [{"name":"Appleton Tower","id":1,"location":{"lng":-3.192473,"lat":55.946233}}]
+            """;
+
+    @Autowired
+    private ILPRestController ilpRestController;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private String ilpEndpoint;
+
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        ilpRestController.initBreakers(); // start every test with closed breakers
+    }
+
+    @Test
+    void fetchAll_fetchesEveryDataset() {
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+
+        IlpSnapshot snapshot = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+
+        assertEquals(1, snapshot.getDrones().size());
+        assertEquals(5.0, snapshot.getDrones().getFirst().getCapacity());
+        assertEquals(1, snapshot.getServicePoints().size());
+        assertTrue(snapshot.getDronesForServicePoints().isEmpty());
+        assertTrue(snapshot.getRestrictedAreas().isEmpty());
+        assertNotNull(snapshot.getFetchedAt());
+        server.verify();
+    }
+
+    @Test
+    void fetchAll_sendsIfNoneMatch_andKeepsPreviousSnapshotOn304() {
+        HttpHeaders etag = new HttpHeaders();
+        etag.setETag("\"v1\"");
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON).headers(etag));
+        IlpSnapshot first = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+        assertEquals("\"v1\"", first.getDronesPayload().etag());
+
+        server.reset();
+        server.expect(once(), requestTo(ilpEndpoint + "/drones"))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+        expectUnchangedOthers();
+
+        IlpSnapshot second = ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+        assertSame(first, second);
+        server.verify();
+    }
+
+    @Test
+    void fetchAll_keepsPreviousSnapshot_whenServerIgnoresIfNoneMatchButSendsSameEtag() {
+        HttpHeaders etag = new HttpHeaders();
+        etag.setETag("\"v1\"");
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON).headers(etag));
+        IlpSnapshot first = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+
+        // a 200 under the same ETag is trusted without reading the body, so even a different body is not decoded
+        server.reset();
+        expectAll(withSuccess(DRONES_CHANGED, MediaType.APPLICATION_JSON).headers(etag));
+        IlpSnapshot second = ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+
+        assertSame(first, second);
+        assertEquals(5.0, second.getDrones().getFirst().getCapacity());
+    }
+
+    @Test
+    void fetchAll_fallsBackToContentHash_whenServerSendsNoValidators() {
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+        IlpSnapshot first = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+        assertNotNull(first.getDronesPayload().contentHash());
+
+        server.reset();
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+        IlpSnapshot second = ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+
+        assertSame(first, second);
+        assertSame(first.getDrones(), second.getDrones());
+    }
+
+    @Test
+    void fetchAll_remapsOnlyTheDatasetThatChanged() {
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+        IlpSnapshot first = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+
+        server.reset();
+        expectAll(withSuccess(DRONES_CHANGED, MediaType.APPLICATION_JSON));
+        IlpSnapshot second = ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+
+        assertNotSame(first, second);
+        assertEquals(7.0, second.getDrones().getFirst().getCapacity());
+        assertSame(first.getServicePoints(), second.getServicePoints());
+        assertSame(first.getRestrictedAreas(), second.getRestrictedAreas());
+    }
+
+    @Test
+    void fetchAll_failsWith504_whenDeadlinePasses() {
+        expectAll(request -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return withSuccess(DRONES, MediaType.APPLICATION_JSON).createResponse(request);
+        });
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> ilpRestController.fetchAllFromIlp(null, Duration.ofMillis(200)));
+        assertEquals(504, ex.getStatusCode().value());
+    }
+
+    @Test
+    void fetchAll_keepsPreviousDatasetAsStale_whenIlpFails() {
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+        IlpSnapshot first = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+
+        server.reset();
+        expectAll(withServerError());
+        IlpSnapshot second = ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+
+        assertEquals(Set.of(IlpDataset.DRONES), second.getStaleDatasets());
+        assertSame(first.getDronesPayload(), second.getDronesPayload());
+        assertSame(first.getServicePointsPayload(), second.getServicePointsPayload());
+
+        // recovering clears the marker without remapping anything
+        server.reset();
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+        IlpSnapshot third = ilpRestController.fetchAllFromIlp(second, Duration.ofSeconds(5));
+        assertFalse(third.isStale());
+        assertSame(first.getDronesPayload(), third.getDronesPayload());
+    }
+
+    @Test
+    void fetchAll_stopsCallingIlp_whileBreakerIsOpen() {
+        expectAll(withSuccess(DRONES, MediaType.APPLICATION_JSON));
+        IlpSnapshot first = ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5));
+
+        server.reset();
+        server.expect(times(3), requestTo(ilpEndpoint + "/drones")).andRespond(withServerError());
+        expectUnchangedOthers();
+        for (int i = 0; i < 3; i++) {
+            ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+        }
+        assertEquals(IlpCircuitBreaker.State.OPEN, ilpRestController.getBreaker(IlpDataset.DRONES).getState());
+
+        // open: /drones is not requested again (times(3) above would fail), previous data is served as stale
+        IlpSnapshot whileOpen = ilpRestController.fetchAllFromIlp(first, Duration.ofSeconds(5));
+        assertEquals(Set.of(IlpDataset.DRONES), whileOpen.getStaleDatasets());
+        assertSame(first.getDrones(), whileOpen.getDrones());
+
+        // with nothing to fall back on the caller gets a 503 rather than waiting on ILP
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> ilpRestController.fetchAllFromIlp(null, Duration.ofSeconds(5)));
+        assertEquals(503, ex.getStatusCode().value());
+        server.verify();
+    }
+
+    private void expectAll(ResponseCreator drones) {
+        server.expect(manyTimes(), requestTo(ilpEndpoint + "/drones")).andRespond(drones);
+        expectUnchangedOthers();
+    }
+
+    private void expectUnchangedOthers() {
+        server.expect(manyTimes(), requestTo(ilpEndpoint + "/service-points"))
+                .andRespond(withSuccess(SERVICE_POINTS, MediaType.APPLICATION_JSON));
+        server.expect(manyTimes(), requestTo(ilpEndpoint + "/drones-for-service-points"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+        server.expect(manyTimes(), requestTo(ilpEndpoint + "/restricted-areas"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+    }
+}
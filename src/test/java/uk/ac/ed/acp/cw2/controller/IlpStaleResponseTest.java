@@ -0,0 +1,59 @@
+package uk.ac.ed.acp.cw2.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import uk.ac.ed.acp.cw2.data.IlpDataset;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+import uk.ac.ed.acp.cw2.data.WorldSnapshot;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.service.IlpDataCache;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Web tests for the staleness marker on drone endpoints answered from ILP data that could not be refreshed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class IlpStaleResponseTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private IlpDataCache ilpDataCache;
+
+    private final IlpSnapshot fresh = new IlpSnapshot(List.of(Drone.builder().id("1").name("d1").cooling(true)
+            .heating(false).capacity(1.0).maxMoves(10).costPerMove(1.0).costInitial(1.0).costFinal(1.0).build()),
+            List.of(), List.of(), List.of(), Instant.now());
+
+    @Test
+    void droneEndpoint_marksResponse_whenDatasetsAreStale() throws Exception {
+        when(ilpDataCache.world()).thenReturn(WorldSnapshot.of(
+                fresh.withStaleDatasets(EnumSet.of(IlpDataset.DRONES, IlpDataset.RESTRICTED_AREAS))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/dronesWithCooling/true"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(ServiceController.STALE_HEADER, "drones, restricted-areas"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value("1"));
+    }
+
+    @Test
+    void droneEndpoint_hasNoMarker_whenDataIsFresh() throws Exception {
+        when(ilpDataCache.world()).thenReturn(WorldSnapshot.of(fresh));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/droneDetails/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(ServiceController.STALE_HEADER));
+    }
+}
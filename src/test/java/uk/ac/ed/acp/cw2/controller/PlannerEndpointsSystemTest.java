@@ -11,10 +11,12 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
 import uk.ac.ed.acp.cw2.dto.*;
 import uk.ac.ed.acp.cw2.entity.*;
 import uk.ac.ed.acp.cw2.testutil.TestDataLoader;
 
+import java.time.Instant;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
@@ -56,6 +58,12 @@ class PlannerEndpointsSystemTest {
         when(ilpRestController.fetchDronesFromIlp()).thenReturn(List.of(stubDrone("1")));
         when(ilpRestController.fetchServicePointsFromIlp()).thenReturn(List.of(stubServicePoint(1, -3.192473, 55.946233)));
         when(ilpRestController.fetchDronesForServicePointsFromIlp()).thenReturn(List.of(stubDroneForServicePoint(1, "1")));
+        when(ilpRestController.fetchAllFromIlp(any())).thenAnswer(inv -> new IlpSnapshot(
+                ilpRestController.fetchDronesFromIlp(),
+                ilpRestController.fetchServicePointsFromIlp(),
+                ilpRestController.fetchDronesForServicePointsFromIlp(),
+                ilpRestController.fetchRestrictedAreasFromIlp(),
+                Instant.now()));
     }
 
     @Test
@@ -71,6 +79,7 @@ class PlannerEndpointsSystemTest {
                 .andExpect(jsonPath("$.totalMoves").isNumber())
                 .andExpect(jsonPath("$.totalCost").isNumber())
                 .andExpect(jsonPath("$.dronePaths").isArray())
+                .andExpect(jsonPath("$.dronePaths", not(empty())))
                 .andReturn();
 
         // Second request (same input)
@@ -126,6 +135,8 @@ class PlannerEndpointsSystemTest {
                 "Expected <=2000ms but was " + durationMs + "ms");
     }
 
+    // sample-1 delivers ~124 steps east of the stub service point under a maxCost of 50, so moves must be cheap enough
+    // for the round trip to fit
     private static Drone stubDrone(String id) {
         return Drone.builder()
                 .id(id)
@@ -134,7 +145,7 @@ class PlannerEndpointsSystemTest {
                 .heating(false)
                 .capacity(10.0)
                 .maxMoves(2000)
-                .costPerMove(1.0)
+                .costPerMove(0.1)
                 .costInitial(1.0)
                 .costFinal(1.0)
                 .build();
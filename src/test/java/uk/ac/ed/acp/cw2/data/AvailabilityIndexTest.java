@@ -0,0 +1,69 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for looking up drone availability by day of week and time of day.
+ */
+class AvailabilityIndexTest {
+
+    private final AvailabilityIndex index = AvailabilityIndex.of(Map.of(
+            "1", List.of(window(DayOfWeek.MONDAY, 9, 12), window(DayOfWeek.MONDAY, 14, 17)),
+            "2", List.of(window(DayOfWeek.MONDAY, 11, 15), window(DayOfWeek.TUESDAY, 0, 23)),
+            "3", List.of(window(DayOfWeek.WEDNESDAY, 17, 9)),
+            "4", List.of()));
+
+    @Test
+    void windows_areClosedAtBothEnds() {
+        assertAvailable(DayOfWeek.MONDAY, LocalTime.of(9, 0), "1");
+        assertAvailable(DayOfWeek.MONDAY, LocalTime.of(12, 0), "1", "2");
+        assertAvailable(DayOfWeek.MONDAY, LocalTime.of(13, 0), "2");
+        assertAvailable(DayOfWeek.MONDAY, LocalTime.of(15, 0), "1", "2");
+        assertAvailable(DayOfWeek.MONDAY, LocalTime.of(8, 59));
+        assertAvailable(DayOfWeek.MONDAY, LocalTime.of(17, 0, 1));
+    }
+
+    @Test
+    void missingDayOrTime_matchesAnyDayOrAnyTime() {
+        assertAvailable(null, LocalTime.of(20, 0), "2");
+        assertAvailable(DayOfWeek.TUESDAY, null, "2");
+        assertAvailable(DayOfWeek.WEDNESDAY, null, "3");
+        assertAvailable(null, null, "1", "2", "3", "4", "unknown");
+    }
+
+    @Test
+    void invertedWindow_neverContainsATime() {
+        assertAvailable(DayOfWeek.WEDNESDAY, LocalTime.of(17, 0));
+        assertAvailable(DayOfWeek.WEDNESDAY, LocalTime.of(8, 0));
+    }
+
+    @Test
+    void dayWithoutWindows_matchesNobody() {
+        assertAvailable(DayOfWeek.SUNDAY, LocalTime.of(12, 0));
+        assertAvailable(DayOfWeek.SUNDAY, null);
+    }
+
+    private void assertAvailable(DayOfWeek day, LocalTime time, String... expected) {
+        Predicate<String> available = index.availableAt(day, time);
+        List<String> ids = List.of("1", "2", "3", "4", "unknown");
+        List<String> actual = ids.stream().filter(available).toList();
+        assertEquals(List.of(expected), actual, day + " " + time);
+    }
+
+    private static DroneForServicePoint.Availability window(DayOfWeek day, int fromHour, int untilHour) {
+        return DroneForServicePoint.Availability.builder()
+                .dayOfWeek(day)
+                .from(LocalTime.of(fromHour, 0))
+                .until(LocalTime.of(untilHour, 0))
+                .build();
+    }
+}
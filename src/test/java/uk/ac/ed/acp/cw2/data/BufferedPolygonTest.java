@@ -0,0 +1,72 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the distance-based collision checks against a buffered restricted area.
+ */
+class BufferedPolygonTest {
+
+    // square from (0, 0) to (10, 10), grown by 1
+    private final BufferedPolygon square = BufferedPolygon.of(polygon(0, 0, 0, 10, 10, 10, 10, 0, 0, 0), 1.0);
+
+    @Test
+    void contains_pointsInsideThePolygonOrWithinTheBuffer() {
+        assertTrue(square.contains(5, 5));
+        assertTrue(square.contains(10.5, 5));
+        assertTrue(square.contains(-1, 5));
+        assertTrue(square.contains(10.5, 10.5));
+    }
+
+    @Test
+    void contains_notPointsBeyondTheBuffer() {
+        assertFalse(square.contains(11.01, 5));
+        assertFalse(square.contains(5, -1.01));
+        // the corner is rounded, so the corner of the bounding box is clear
+        assertFalse(square.contains(10.9, 10.9));
+    }
+
+    @Test
+    void isTouchedBy_segmentPassingWithinBufferPlusHalfWidth() {
+        assertTrue(square.isTouchedBy(11.4, -5, 11.4, 15, 0.5));
+        assertFalse(square.isTouchedBy(11.6, -5, 11.6, 15, 0.5));
+    }
+
+    @Test
+    void isTouchedBy_segmentCrossingThePolygon() {
+        assertTrue(square.isTouchedBy(-5, 5, 15, 5, 0.0));
+    }
+
+    @Test
+    void isTouchedBy_segmentEntirelyInsideThePolygon() {
+        assertTrue(square.isTouchedBy(4, 4, 6, 6, 0.0));
+    }
+
+    @Test
+    void isTouchedBy_segmentNearARoundedCorner() {
+        // 1.5 from the corner (10, 10) along the diagonal, within reach 1.6 but outside reach 1.4
+        double d = 1.5 / Math.sqrt(2);
+        assertTrue(square.isTouchedBy(10 + d, 10 + d, 12, 12, 0.6));
+        assertFalse(square.isTouchedBy(10 + d, 10 + d, 12, 12, 0.4));
+    }
+
+    @Test
+    void contains_usesNonZeroWinding_forSelfOverlappingOutlines() {
+        // the same square traced twice winds twice around its inside
+        BufferedPolygon twice = BufferedPolygon.of(
+                polygon(0, 0, 0, 10, 10, 10, 10, 0, 0, 0, 0, 10, 10, 10, 10, 0), 0.0);
+
+        assertTrue(twice.contains(5, 5));
+    }
+
+    private static RestrictedArea polygon(double... lngLat) {
+        RestrictedArea.vertices[] vertices = new RestrictedArea.vertices[lngLat.length / 2];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = RestrictedArea.vertices.builder().lng(lngLat[2 * i]).lat(lngLat[2 * i + 1]).build();
+        }
+        return RestrictedArea.builder().name("area").id(1).vertices(vertices).build();
+    }
+}
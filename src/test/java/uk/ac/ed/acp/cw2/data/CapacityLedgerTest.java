@@ -0,0 +1,59 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for per-request capacity bookkeeping.
+ */
+class CapacityLedgerTest {
+
+    @Test
+    void consumesCapacity_withoutTouchingTheDrones() {
+        Drone drone = drone(5.0);
+        CapacityLedger ledger = new CapacityLedger(List.of(drone));
+
+        assertTrue(ledger.tryConsume(0, 2.0));
+        assertTrue(ledger.tryConsume(0, 3.0));
+        assertFalse(ledger.tryConsume(0, 0.5));
+
+        assertEquals(0.0, ledger.remaining(0));
+        assertEquals(5.0, drone.getCapacity());
+    }
+
+    @Test
+    void failedConsumption_leavesCapacityAsItWas() {
+        CapacityLedger ledger = new CapacityLedger(List.of(drone(1.0)));
+
+        assertFalse(ledger.tryConsume(0, 1.5));
+        assertTrue(ledger.tryConsume(0, 1.0));
+    }
+
+    @Test
+    void droneWithoutCapacity_carriesNothing() {
+        CapacityLedger ledger = new CapacityLedger(List.of(drone(null)));
+
+        assertFalse(ledger.tryConsume(0, 0.0));
+    }
+
+    @Test
+    void ledgersOfTheSameFleet_areIndependent() {
+        List<Drone> fleet = List.of(drone(2.0), drone(4.0));
+        CapacityLedger first = new CapacityLedger(fleet);
+        CapacityLedger second = new CapacityLedger(fleet);
+
+        assertTrue(first.tryConsume(1, 4.0));
+
+        assertEquals(0.0, first.remaining(1));
+        assertEquals(4.0, second.remaining(1));
+    }
+
+    private static Drone drone(Double capacity) {
+        return Drone.builder().id("1").name("d1").cooling(true).heating(false).capacity(capacity).maxMoves(10)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+    }
+}
@@ -0,0 +1,121 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.QueryRequest;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar fleet and the bitset evaluation of compiled queries against it.
+ */
+class DroneColumnsTest {
+
+    private final List<Drone> fleet = List.of(
+            drone("1", true, false, 10.0, 100),
+            drone("2", false, true, 5.0, 50),
+            drone("3", null, null, null, null));
+    private final DroneColumns columns = DroneColumns.of(fleet);
+
+    @Test
+    void booleanColumn_keepsMissingValuesOutOfBothSides() {
+        assertArrayEquals(new String[]{"1"}, columns.ids(columns.bool("cooling").equalTo(true)));
+        assertArrayEquals(new String[]{"2"}, columns.ids(columns.bool("cooling").equalTo(false)));
+        assertArrayEquals(new String[]{"2"}, columns.ids(columns.bool("heating").equalTo(true)));
+    }
+
+    @Test
+    void numericColumn_comparesPrimitives_andNeverMatchesMissingValues() {
+        DroneColumns.NumericColumn capacity = columns.numeric("capacity");
+
+        assertArrayEquals(new String[]{"1"}, columns.ids(capacity.greaterThan(6)));
+        assertArrayEquals(new String[]{"2"}, columns.ids(capacity.lessThan(6)));
+        assertArrayEquals(new String[]{"2"}, columns.ids(capacity.equalTo(5)));
+        assertArrayEquals(new String[]{"1"}, columns.ids(columns.numeric("maxMoves").greaterThan(60)));
+        assertNull(columns.numeric("name"));
+    }
+
+    @Test
+    void numericRange_resolvesFromSortedIndex_withInclusiveAndExclusiveEnds() {
+        List<Drone> many = new ArrayList<>();
+        for (int i = 0; i < 20; i++) many.add(drone(String.valueOf(i), true, true, (double) (i * 7 % 20), i));
+        DroneColumns.NumericColumn capacity = DroneColumns.of(many).numeric("capacity");
+
+        assertEquals(6, capacity.range(5, true, 10, true).cardinality());
+        assertEquals(4, capacity.range(5, false, 10, false).cardinality());
+        assertEquals(1, capacity.equalTo(19).cardinality());
+        assertEquals(0, capacity.range(10, true, 5, true).cardinality());
+        assertEquals(20, capacity.range(Double.NEGATIVE_INFINITY, true, Double.POSITIVE_INFINITY, true).cardinality());
+        for (int row = capacity.greaterThan(15).nextSetBit(0); row >= 0; row = capacity.greaterThan(15).nextSetBit(row + 1)) {
+            assertTrue(capacity.value(row) > 15);
+        }
+    }
+
+    @Test
+    void counts_matchSelectedRows_withoutBuildingThem() {
+        DroneColumns.NumericColumn capacity = columns.numeric("capacity");
+
+        assertEquals(capacity.range(5, true, 10, false).cardinality(), capacity.count(5, true, 10, false));
+        assertEquals(2, capacity.count(Double.NEGATIVE_INFINITY, true, Double.POSITIVE_INFINITY, true));
+        assertEquals(0, capacity.count(10, true, 5, true));
+        assertEquals(1, columns.bool("cooling").count(true));
+        assertEquals(1, columns.bool("cooling").count(false));
+
+        assertEquals(2, DroneQuery.compile("cooling", "!=", "true").count(columns), "missing values are not equal");
+        assertEquals(3, DroneQuery.compile("doesNotExist", "!=", "x").count(columns));
+        assertEquals(-1, DroneQuery.compile("name", "=", "d1").count(columns), "strings are not held column-wise");
+    }
+
+    @Test
+    void selectedBitsets_areCopies() {
+        BitSet cooling = columns.bool("cooling").equalTo(true);
+        cooling.clear();
+
+        assertArrayEquals(new String[]{"1"}, columns.ids(columns.bool("cooling").equalTo(true)));
+    }
+
+    @Test
+    void columnarEvaluation_matchesRowByRowEvaluation() {
+        List<List<QueryRequest>> queries = List.of(
+                List.of(new QueryRequest("cooling", "=", "true"), new QueryRequest("capacity", "<", "6"),
+                        new QueryRequest("cooling", "!=", "true")),
+                List.of(new QueryRequest("maxMoves", "!=", "100"), new QueryRequest("name", "=", "d1")),
+                List.of(new QueryRequest("heating", "=", "false"), new QueryRequest("doesNotExist", "=", "x")),
+                List.of(new QueryRequest("capacity", ">=", "10"), new QueryRequest("maxMoves", "between", "0,60"),
+                        new QueryRequest("costFinal", "<=", "1")),
+                // matches nothing, then every row, then nothing is left for the rest
+                List.of(new QueryRequest("capacity", ">", "100"), new QueryRequest("doesNotExist", "!=", "x"),
+                        new QueryRequest("cooling", "=", "true")),
+                // broad conditions first leave only a row or two for the later ones to test
+                List.of(new QueryRequest("maxMoves", "!=", "50"), new QueryRequest("name", "=", "d2"),
+                        new QueryRequest("capacity", "<", "100")));
+
+        for (List<QueryRequest> query : queries) {
+            DroneQuery compiled = DroneQuery.compile(query);
+            assertArrayEquals(rowByRow(query), compiled.matchingIds(columns));
+        }
+    }
+
+    private String[] rowByRow(List<QueryRequest> query) {
+        List<Drone> remaining = new ArrayList<>(fleet);
+        List<String> ids = new ArrayList<>();
+        for (QueryRequest q : query) {
+            DronePredicate p = DroneQuery.compile(q.getAttribute(), q.getOperator(), q.getValue());
+            remaining.removeIf(d -> {
+                if (!p.test(d)) return false;
+                ids.add(d.getId());
+                return true;
+            });
+        }
+        return ids.toArray(new String[0]);
+    }
+
+    private static Drone drone(String id, Boolean cooling, Boolean heating, Double capacity, Integer maxMoves) {
+        return Drone.builder().id(id).name("d" + id).cooling(cooling).heating(heating).capacity(capacity)
+                .maxMoves(maxMoves).costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+    }
+}
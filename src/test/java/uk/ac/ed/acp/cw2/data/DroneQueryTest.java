@@ -0,0 +1,136 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.QueryRequest;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for compiling query conditions into typed drone predicates.
+ */
+class DroneQueryTest {
+
+    private final Drone d1 = drone("1", true, 8.0, 100);
+    private final Drone d2 = drone("2", false, 4.0, 50);
+
+    @Test
+    void numericConditions_compareAsNumbers_acrossIntegerAndDecimalValues() {
+        assertTrue(DroneQuery.compile("capacity", "=", "8").test(d1));
+        assertTrue(DroneQuery.compile("capacity", "=", "8.00").test(d1));
+        assertTrue(DroneQuery.compile("maxMoves", ">", "99.5").test(d1));
+        assertTrue(DroneQuery.compile("maxMoves", "<", "50.5").test(d2));
+        assertFalse(DroneQuery.compile("capacity", "!=", "4.0").test(d2));
+    }
+
+    @Test
+    void inclusiveRangeOperators_onNumericAttributes() {
+        assertTrue(DroneQuery.compile("capacity", ">=", "8").test(d1));
+        assertFalse(DroneQuery.compile("capacity", ">=", "8.01").test(d1));
+        assertTrue(DroneQuery.compile("maxMoves", "<=", "50").test(d2));
+        assertTrue(DroneQuery.compile("capacity", "between", "4,8").test(d1));
+        assertTrue(DroneQuery.compile("capacity", "between", "4, 8").test(d2));
+        assertFalse(DroneQuery.compile("capacity", "between", "8,4").test(d1));
+        assertFalse(DroneQuery.compile("name", "between", "a,z").test(d1));
+    }
+
+    @Test
+    void between_requiresTwoNumericBounds() {
+        assertThrows(IllegalArgumentException.class, () -> DroneQuery.compile("capacity", "between", "4"));
+        assertThrows(IllegalArgumentException.class, () -> DroneQuery.compile("capacity", "between", "4,5,6"));
+        assertThrows(IllegalArgumentException.class, () -> DroneQuery.compile("capacity", "between", "4,x"));
+    }
+
+    @Test
+    void booleanAndStringConditions_onlySupportEquality() {
+        assertTrue(DroneQuery.compile("cooling", "=", "true").test(d1));
+        assertTrue(DroneQuery.compile("cooling", "!=", "true").test(d2));
+        assertTrue(DroneQuery.compile("name", "=", "d2").test(d2));
+        assertFalse(DroneQuery.compile("name", ">", "a").test(d2));
+    }
+
+    @Test
+    void unknownAttributeOrOperator_neverMatches_exceptForNotEquals() {
+        assertFalse(DroneQuery.compile("doesNotExist", "=", "x").test(d1));
+        assertTrue(DroneQuery.compile("doesNotExist", "!=", "x").test(d1));
+        assertFalse(DroneQuery.compile("capacity", "=>", "1").test(d1));
+    }
+
+    @Test
+    void nullAttributeValue_neverCompares() {
+        Drone unknownCapacity = d1.toBuilder().capacity(null).build();
+
+        assertFalse(DroneQuery.compile("capacity", "<", "100").test(unknownCapacity));
+        assertTrue(DroneQuery.compile("capacity", "!=", "8").test(unknownCapacity));
+    }
+
+    @Test
+    void unparseableNumber_failsAtCompileTime() {
+        assertThrows(IllegalArgumentException.class, () -> DroneQuery.compile("capacity", ">", "lots"));
+        assertThrows(IllegalArgumentException.class, () -> DroneQuery.compile("capacity", "=", "NaN"));
+        assertThrows(IllegalArgumentException.class, () -> DroneQuery.compile("capacity", "=", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> DroneQuery.compile(List.of(new QueryRequest("maxMoves", "<", "ten"))));
+    }
+
+    @Test
+    void compiledQueries_areEqual_whenTheySelectTheSameIdsInTheSameOrder() {
+        DroneQuery query = DroneQuery.compile(List.of(q("capacity", "=", "8"), q("name", "!=", "d1")));
+
+        assertEquals(query, DroneQuery.compile(List.of(q("capacity", "=", "8.0"), q("name", "!=", "d1"))));
+        assertEquals(query, DroneQuery.compile(List.of(q("capacity", "=", "8"), q("capacity", "=", "8"),
+                q("doesNotExist", "=", "x"), q("name", "!=", "d1"))));
+        assertEquals(query.hashCode(),
+                DroneQuery.compile(List.of(q("capacity", "=", "8.00"), q("name", "!=", "d1"))).hashCode());
+
+        assertNotEquals(query, DroneQuery.compile(List.of(q("name", "!=", "d1"), q("capacity", "=", "8"))));
+        assertNotEquals(query, DroneQuery.compile(List.of(q("capacity", "=", "8"), q("name", "=", "d1"))));
+        assertNotEquals(query, DroneQuery.compile(List.of(q("capacity", ">=", "8"), q("name", "!=", "d1"))));
+    }
+
+    @Test
+    void conditionsAfterOneMatchingEverything_areDropped_butStillValidated() {
+        DroneQuery everything = DroneQuery.compile(List.of(q("doesNotExist", "!=", "x")));
+
+        assertEquals(everything, DroneQuery.compile(List.of(q("doesNotExist", "!=", "x"), q("capacity", "=", "8"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> DroneQuery.compile(List.of(q("doesNotExist", "!=", "x"), q("capacity", "=", "eight"))));
+    }
+
+    @Test
+    void matchingIds_groupsIdsByFirstMatchingCondition() {
+        DroneQuery query = DroneQuery.compile(List.of(
+                new QueryRequest("capacity", "<", "5"),
+                new QueryRequest("maxMoves", ">", "10")));
+
+        assertArrayEquals(new String[]{"2", "1"}, query.matchingIds(List.of(d1, d2)));
+    }
+
+    @Test
+    void matchingIds_withSharedSelections_selectsEachConditionOnce() {
+        DroneColumns columns = DroneColumns.of(List.of(d1, d2));
+        DroneQuery first = DroneQuery.compile(List.of(q("capacity", "<", "5"), q("maxMoves", ">", "10")));
+        DroneQuery second = DroneQuery.compile(List.of(q("maxMoves", ">", "10")));
+        Map<DronePredicate, BitSet> selected = new HashMap<>();
+
+        assertArrayEquals(new String[]{"2", "1"}, first.matchingIds(columns, selected));
+        assertArrayEquals(new String[]{"1", "2"}, second.matchingIds(columns, selected));
+        assertEquals(2, selected.size());
+        assertEquals(2, selected.get(DroneQuery.compile("maxMoves", ">", "10")).cardinality(),
+                "shared selections are not narrowed by the queries using them");
+    }
+
+    private static QueryRequest q(String attribute, String operator, String value) {
+        return new QueryRequest(attribute, operator, value);
+    }
+
+    private static Drone drone(String id, boolean cooling, double capacity, int maxMoves) {
+        return Drone.builder().id(id).name("d" + id).cooling(cooling).heating(false).capacity(capacity)
+                .maxMoves(maxMoves).costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+    }
+}
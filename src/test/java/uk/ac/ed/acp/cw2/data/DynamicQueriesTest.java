@@ -0,0 +1,43 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for resolving drone attribute names to compiled getters.
+ */
+class DynamicQueriesTest {
+
+    private final Drone drone = Drone.builder().id("7").name("d7").cooling(true).heating(false).capacity(4.5)
+            .maxMoves(100).costPerMove(0.02).costInitial(1.0).costFinal(2.0).build();
+
+    @Test
+    void attribute_resolvesGetterOnce_andReadsEveryDrone() {
+        DroneAttribute capacity = DynamicQueries.attribute("capacity");
+
+        assertTrue(capacity.isKnown());
+        assertEquals("capacity", capacity.name());
+        assertEquals(Double.class, capacity.type());
+        assertEquals(4.5, capacity.read(drone));
+        assertEquals(1.0, capacity.read(drone.toBuilder().capacity(1.0).build()));
+        assertSame(capacity, DynamicQueries.attribute("capacity"));
+    }
+
+    @Test
+    void attribute_acceptsCapitalisedNames() {
+        assertEquals(100, DynamicQueries.attribute("MaxMoves").read(drone));
+        assertEquals(Boolean.TRUE, DynamicQueries.attribute("cooling").read(drone));
+    }
+
+    @Test
+    void unknownAttribute_resolvesToUnknown_andReadsNull() {
+        for (String name : new String[]{"doesNotExist", "", null}) {
+            DroneAttribute attribute = DynamicQueries.attribute(name);
+            assertSame(DroneAttribute.UNKNOWN, attribute);
+            assertNull(attribute.read(drone));
+        }
+        assertNull(DynamicQueries.readProperty(drone, "doesNotExist"));
+    }
+}
@@ -5,6 +5,7 @@ import uk.ac.ed.acp.cw2.dto.LngLat;
 import uk.ac.ed.acp.cw2.entity.RestrictedArea;
 
 import java.awt.geom.Path2D;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,6 +63,59 @@ class FlightPathAlgorithmRestrictedAreaTest {
         assertTrue(hasDetour, "Expected a detour around the restricted area");
     }
 
+    @Test
+    void MR4_samePath_whenPlannedAgainAfterAnotherSearchOnTheSameThread() {
+        RestrictedArea square = RestrictedArea.builder()
+                .name("square")
+                .id(1)
+                .limits(RestrictedArea.limits.builder().lower(0).upper(-1).build())
+                .vertices(new RestrictedArea.vertices[]{
+                        RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9440).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9443).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1902).lat(55.9443).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1902).lat(55.9440).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9440).build(),
+                })
+                .build();
+        LngLat west = LngLat.builder().lng(-3.1910).lat(55.94415).build();
+        LngLat east = LngLat.builder().lng(-3.1898).lat(55.94415).build();
+        LngLat north = LngLat.builder().lng(-3.1904).lat(55.9450).build();
+        LngLat south = LngLat.builder().lng(-3.1904).lat(55.9434).build();
+
+        List<LngLat> first = FlightPathAlgorithm.findPath(west, east, List.of(square));
+        FlightPathAlgorithm.findPath(north, south, List.of(square));
+        List<LngLat> again = FlightPathAlgorithm.findPath(west, east, List.of(square));
+
+        assertEquals(coordinates(first), coordinates(again));
+    }
+
+    @Test
+    void FR11_pathFollowsTheAreas_whenTheSameListChangesBetweenCalls() {
+        RestrictedArea square = RestrictedArea.builder()
+                .name("square")
+                .id(1)
+                .vertices(new RestrictedArea.vertices[]{
+                        RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9440).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9443).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1902).lat(55.9443).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1902).lat(55.9440).build(),
+                })
+                .build();
+        LngLat west = LngLat.builder().lng(-3.1910).lat(55.94415).build();
+        LngLat east = LngLat.builder().lng(-3.1898).lat(55.94415).build();
+        List<RestrictedArea> areas = new ArrayList<>(List.of(square));
+
+        RestrictedAirspace prepared = FlightPathAlgorithm.prepare(areas);
+        List<LngLat> detour = FlightPathAlgorithm.findPath(west, east, areas);
+        areas.clear();
+        List<LngLat> straight = FlightPathAlgorithm.findPath(west, east, areas);
+
+        assertTrue(straight.stream().allMatch(p -> Math.abs(p.getLat() - west.getLat()) < 1e-12),
+                "Expected a straight line once the area is gone");
+        // the prepared airspace kept the square
+        assertEquals(coordinates(detour), coordinates(FlightPathAlgorithm.findPath(west, east, prepared)));
+    }
+
     @Test
     void FR11_straightLineWhenNoRestrictedAreas() {
         LngLat start = LngLat.builder().lng(-3.192473).lat(55.946233).build();
@@ -72,4 +126,8 @@ class FlightPathAlgorithmRestrictedAreaTest {
         // If unrestricted, path should be monotonic in lat and stay on same longitude.
         assertTrue(path.stream().allMatch(p -> Math.abs(p.getLng() - start.getLng()) < 1e-12));
     }
+
+    private static List<List<Double>> coordinates(List<LngLat> path) {
+        return path.stream().map(p -> List.of(p.getLng(), p.getLat())).toList();
+    }
 }
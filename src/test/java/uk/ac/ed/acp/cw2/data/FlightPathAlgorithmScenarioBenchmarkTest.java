@@ -0,0 +1,79 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRecRequest;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+import uk.ac.ed.acp.cw2.mapper.RestrictedAreaMapper;
+import uk.ac.ed.acp.cw2.testutil.TestDataLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures planning every delivery leg of the visualiser's scenarios, out and back, around the real restricted
+ * areas, so the search and its open set can be compared between changes. Timings are logged rather than asserted;
+ * tagged "benchmark", so it only runs with {@code mvn test -Pbenchmark}. Leg validity is checked by
+ * {@link FlightPathAlgorithmScenarioTest}.
+ */
+@Tag("benchmark")
+class FlightPathAlgorithmScenarioBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightPathAlgorithmScenarioBenchmarkTest.class);
+
+    private static final LngLat HOME = LngLat.builder().lng(-3.192473).lat(55.946233).build();
+    private static final List<String> USE_CASES = List.of("sample-1", "sample-2", "sample-3", "sample-4", "sample-5");
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    @Test
+    void MR3_planScenarioLegs() {
+        List<RestrictedArea> restrictedAreas = RestrictedAreaMapper.fromDtoList(TestDataLoader.loadRestrictedAreas());
+        List<LngLat> deliveries = new ArrayList<>();
+        for (String useCase : USE_CASES) {
+            for (MedDispatchRecRequest r : TestDataLoader.loadDispatchScenarioUseCase(useCase)) {
+                deliveries.add(r.getDelivery());
+            }
+        }
+        assertFalse(deliveries.isEmpty());
+
+        long prepareStart = System.nanoTime();
+        RestrictedAirspace airspace = FlightPathAlgorithm.prepare(restrictedAreas);
+        long prepareNanos = System.nanoTime() - prepareStart;
+
+        // warm up so the measured rounds time the search rather than class loading and JIT
+        for (int i = 0; i < WARMUP_ROUNDS; i++) planAll(airspace, deliveries);
+
+        long[] roundNanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            planAll(airspace, deliveries);
+            roundNanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(roundNanos);
+
+        int legs = 2 * deliveries.size();
+        long median = roundNanos[MEASURED_ROUNDS / 2];
+        logger.info("Prepared {} restricted areas in {} ms", restrictedAreas.size(), millis(prepareNanos));
+        logger.info("Planned {} scenario legs per round over {} rounds: min {} ms, median {} ms, max {} ms, "
+                        + "{} ms per leg at the median", legs, MEASURED_ROUNDS, millis(roundNanos[0]), millis(median),
+                millis(roundNanos[MEASURED_ROUNDS - 1]), millis(median / legs));
+    }
+
+    private static void planAll(RestrictedAirspace airspace, List<LngLat> deliveries) {
+        for (LngLat delivery : deliveries) {
+            assertFalse(FlightPathAlgorithm.findPath(HOME, delivery, airspace).isEmpty());
+            assertFalse(FlightPathAlgorithm.findPath(delivery, HOME, airspace).isEmpty());
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
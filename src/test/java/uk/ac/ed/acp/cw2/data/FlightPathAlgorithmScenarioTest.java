@@ -0,0 +1,72 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.dto.MedDispatchRecRequest;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+import uk.ac.ed.acp.cw2.mapper.RestrictedAreaMapper;
+import uk.ac.ed.acp.cw2.testutil.TestDataLoader;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MR3 on the visualiser's scenarios: plans every delivery leg, out and back, around the real restricted areas and
+ * checks that each leg reaches its target in short hops without entering a restricted polygon.
+ */
+class FlightPathAlgorithmScenarioTest {
+
+    private static final double STEP = 1.5E-4;
+    private static final LngLat HOME = LngLat.builder().lng(-3.192473).lat(55.946233).build();
+    private static final List<String> USE_CASES = List.of("sample-1", "sample-2", "sample-3", "sample-4", "sample-5");
+
+    @Test
+    void MR3_plansEveryScenarioLeg_aroundTheRestrictedAreas() {
+        List<RestrictedArea> restrictedAreas = RestrictedAreaMapper.fromDtoList(TestDataLoader.loadRestrictedAreas());
+        List<Path2D> polygons = restrictedAreas.stream().map(FlightPathAlgorithmScenarioTest::polygon).toList();
+        List<LngLat> deliveries = new ArrayList<>();
+        for (String useCase : USE_CASES) {
+            for (MedDispatchRecRequest r : TestDataLoader.loadDispatchScenarioUseCase(useCase)) {
+                deliveries.add(r.getDelivery());
+            }
+        }
+        assertFalse(deliveries.isEmpty());
+
+        // prepared once for every leg, as a world snapshot does
+        RestrictedAirspace airspace = FlightPathAlgorithm.prepare(restrictedAreas);
+        for (LngLat delivery : deliveries) {
+            assertLegAvoids(polygons, HOME, delivery, FlightPathAlgorithm.findPath(HOME, delivery, airspace));
+            assertLegAvoids(polygons, delivery, HOME, FlightPathAlgorithm.findPath(delivery, HOME, airspace));
+        }
+    }
+
+    private static void assertLegAvoids(List<Path2D> polygons, LngLat from, LngLat to, List<LngLat> path) {
+        assertTrue(path.size() >= 2, "No path from " + from + " to " + to);
+        LngLat last = path.get(path.size() - 1);
+        assertEquals(to.getLng(), last.getLng(), 1e-12);
+        assertEquals(to.getLat(), last.getLat(), 1e-12);
+
+        for (int i = 1; i < path.size(); i++) {
+            LngLat a = path.get(i - 1);
+            LngLat b = path.get(i);
+            assertTrue(Math.hypot(b.getLng() - a.getLng(), b.getLat() - a.getLat()) <= 2 * STEP,
+                    "Jump between " + a + " and " + b);
+            for (Path2D polygon : polygons) {
+                assertFalse(polygon.contains(b.getLng(), b.getLat()), "Path point inside restricted polygon: " + b);
+            }
+        }
+    }
+
+    private static Path2D polygon(RestrictedArea area) {
+        Path2D poly = new Path2D.Double();
+        poly.moveTo(area.getVertices()[0].getLng(), area.getVertices()[0].getLat());
+        for (int i = 1; i < area.getVertices().length; i++) {
+            poly.lineTo(area.getVertices()[i].getLng(), area.getVertices()[i].getLat());
+        }
+        poly.closePath();
+        return poly;
+    }
+}
@@ -0,0 +1,91 @@
+package uk.ac.ed.acp.cw2.data;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-dataset ILP circuit breaker, driven by a fake clock.
+ */
+class IlpCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final IlpCircuitBreaker breaker = new IlpCircuitBreaker("drones", 2, Duration.ofSeconds(30), now::get);
+
+    @Test
+    void opensAfterConsecutiveFailures_andRejectsUntilOpenDurationPasses() {
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(IlpCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(IlpCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(IlpCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpen_letsOneProbeThrough_andClosesOnSuccess() {
+        breaker.onFailure();
+        breaker.onFailure();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(IlpCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(), "only one probe while half-open");
+
+        breaker.onSuccess();
+        assertEquals(IlpCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpen_reopensForAFullPeriod_whenProbeFails() {
+        breaker.onFailure();
+        breaker.onFailure();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(IlpCircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(breaker.tryAcquire());
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void publishesStateAndTransitions() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        breaker.bindTo(registry);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(2.0, registry.get("ilp.breaker.state").tag("dataset", "drones").gauge().value());
+
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        breaker.tryAcquire();
+        breaker.onSuccess();
+
+        assertEquals(0.0, registry.get("ilp.breaker.state").tag("dataset", "drones").gauge().value());
+        assertEquals(1.0, registry.get("ilp.breaker.transitions").tag("to", "open").functionCounter().count());
+        assertEquals(1.0, registry.get("ilp.breaker.transitions").tag("to", "half_open").functionCounter().count());
+        assertEquals(1.0, registry.get("ilp.breaker.transitions").tag("to", "closed").functionCounter().count());
+    }
+}
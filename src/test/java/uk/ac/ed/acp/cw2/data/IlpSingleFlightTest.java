@@ -0,0 +1,129 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-dataset coalescing of concurrent ILP fetches.
+ */
+class IlpSingleFlightTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final IlpSingleFlight singleFlight = new IlpSingleFlight(executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallers_shareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            callers.add(executor.submit(() -> singleFlight.execute(IlpDataset.DRONES, () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "drones";
+            })));
+        }
+        waitUntilJoined(IlpDataset.DRONES, 9);
+        release.countDown();
+
+        for (Future<String> caller : callers) {
+            assertEquals("drones", caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getStartedCount(IlpDataset.DRONES));
+        assertFalse(singleFlight.isInFlight(IlpDataset.DRONES));
+    }
+
+    @Test
+    void differentDatasets_areNotCoalesced() {
+        assertEquals("drones", singleFlight.execute(IlpDataset.DRONES, () -> "drones"));
+        assertEquals("areas", singleFlight.execute(IlpDataset.RESTRICTED_AREAS, () -> "areas"));
+
+        assertEquals(1, singleFlight.getStartedCount(IlpDataset.DRONES));
+        assertEquals(1, singleFlight.getStartedCount(IlpDataset.RESTRICTED_AREAS));
+    }
+
+    @Test
+    void completedCall_isNotReused() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute(IlpDataset.DRONES, calls::incrementAndGet);
+        int second = singleFlight.execute(IlpDataset.DRONES, calls::incrementAndGet);
+
+        assertEquals(2, second);
+        assertEquals(0, singleFlight.getJoinedCount(IlpDataset.DRONES));
+    }
+
+    @Test
+    void failure_isSharedAndRethrown() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> leader = executor.submit(() -> singleFlight.execute(IlpDataset.DRONES, () -> {
+            await(release);
+            throw new IllegalArgumentException("ILP down");
+        }));
+        while (!singleFlight.isInFlight(IlpDataset.DRONES)) Thread.onSpinWait();
+        Future<?> follower = executor.submit(() -> singleFlight.execute(IlpDataset.DRONES, () -> "unused"));
+        waitUntilJoined(IlpDataset.DRONES, 1);
+        release.countDown();
+
+        for (Future<?> caller : List.of(leader, follower)) {
+            Exception ex = assertThrows(Exception.class, () -> caller.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        }
+    }
+
+    @Test
+    void call_isCancelled_onceEveryCallerGivesUp() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Future<?> caller = executor.submit(() -> singleFlight.execute(IlpDataset.DRONES, () -> {
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }));
+        // in flight is not enough: a call cancelled before it starts never runs, so is never interrupted
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        caller.cancel(true);
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(singleFlight.isInFlight(IlpDataset.DRONES));
+    }
+
+    private void waitUntilJoined(IlpDataset dataset, long joined) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getJoinedCount(dataset) < joined && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(joined, singleFlight.getJoinedCount(dataset));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for writing and memory-mapped reading of the local binary ILP snapshot.
+ */
+class IlpSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenRead_roundTripsAllDatasetsAndValidators() throws IOException {
+        IlpSnapshot original = sampleSnapshot();
+        Path file = dir.resolve("ilp.snapshot");
+
+        IlpSnapshotFile.write(original, file);
+        IlpSnapshot read = IlpSnapshotFile.read(file);
+
+        assertEquals(original.getFetchedAt(), read.getFetchedAt());
+        assertEquals("\"v1\"", read.getDronesPayload().etag());
+        assertEquals("Tue, 01 Apr 2025 10:00:00 GMT", read.getDronesPayload().lastModified());
+        assertTrue(read.getDronesPayload().hasContentHash(new byte[]{1, 2, 3}));
+        assertNull(read.getServicePointsPayload().etag());
+        assertNull(read.getServicePointsPayload().contentHash());
+
+        Drone d = read.getDrones().getFirst();
+        assertEquals("1", d.getId());
+        assertEquals("Dröne ü", d.getName());
+        assertTrue(d.getCooling());
+        assertNull(d.getHeating());
+        assertEquals(4.5, d.getCapacity());
+        assertEquals(2000, d.getMaxMoves());
+        assertNull(d.getCostFinal());
+
+        DroneServicePoint sp = read.getServicePoints().getFirst();
+        assertEquals(1, sp.getId());
+        assertEquals(-3.1863580788986368, sp.getLocation().getLng());
+        assertEquals(55.94468066708487, sp.getLocation().getLat());
+
+        DroneForServicePoint.Availability window = read.getDronesForServicePoints().getFirst().getDrones()[0].getAvailability()[0];
+        assertEquals(DayOfWeek.SUNDAY, window.getDayOfWeek());
+        assertEquals(LocalTime.of(0, 0), window.getFrom());
+        assertEquals(LocalTime.of(23, 59, 59), window.getUntil());
+
+        RestrictedArea area = read.getRestrictedAreas().getFirst();
+        assertEquals("George Square Area", area.getName());
+        assertEquals(-1, area.getLimits().getUpper());
+        assertEquals(3, area.getVertices().length);
+        assertEquals(55.94284650540911, area.getVertices()[2].getLat());
+    }
+
+    @Test
+    void write_replacesExistingFile_andLeavesNoTempFiles() throws IOException {
+        Path file = dir.resolve("ilp.snapshot");
+        IlpSnapshotFile.write(new IlpSnapshot(List.of(), List.of(), List.of(), List.of(), Instant.EPOCH), file);
+        IlpSnapshotFile.write(sampleSnapshot(), file);
+
+        assertEquals(1, IlpSnapshotFile.read(file).getDrones().size());
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    void read_rejectsForeignAndTruncatedFiles() throws IOException {
+        Path foreign = dir.resolve("foreign");
+        Files.writeString(foreign, "[{\"id\":\"1\"}] not a snapshot");
+        assertThrows(IOException.class, () -> IlpSnapshotFile.read(foreign));
+
+        Path file = dir.resolve("ilp.snapshot");
+        IlpSnapshotFile.write(sampleSnapshot(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = dir.resolve("truncated");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 7));
+        assertThrows(IOException.class, () -> IlpSnapshotFile.read(truncated));
+    }
+
+    @Test
+    void read_rejectsOutOfRangeDayAndTime_asIOException() throws IOException {
+        Path file = dir.resolve("ilp.snapshot");
+        IlpSnapshotFile.write(sampleSnapshot(), file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // the sample's only window: Sunday, from midnight, until 23:59:59
+        byte[] window = ByteBuffer.allocate(17).put((byte) DayOfWeek.SUNDAY.getValue())
+                .putLong(0).putLong(LocalTime.of(23, 59, 59).toNanoOfDay()).array();
+        int at = indexOf(bytes, window);
+        assertTrue(at >= 0, "availability window not found in the file");
+
+        byte[] badDay = bytes.clone();
+        badDay[at] = 9;
+        Path dayFile = dir.resolve("bad-day");
+        Files.write(dayFile, badDay);
+        assertThrows(IOException.class, () -> IlpSnapshotFile.read(dayFile));
+
+        byte[] badTime = bytes.clone();
+        ByteBuffer.wrap(badTime).putLong(at + 1, LocalTime.MAX.toNanoOfDay() + 1);
+        Path timeFile = dir.resolve("bad-time");
+        Files.write(timeFile, badTime);
+        assertThrows(IOException.class, () -> IlpSnapshotFile.read(timeFile));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) return i;
+        }
+        return -1;
+    }
+
+    static IlpSnapshot sampleSnapshot() {
+        Drone drone = Drone.builder().id("1").name("Dröne ü").cooling(true).heating(null).capacity(4.5)
+                .maxMoves(2000).costPerMove(0.01).costInitial(4.3).costFinal(null).build();
+        DroneServicePoint sp = DroneServicePoint.builder().id(1).name("Appleton Tower")
+                .location(new LngLat(-3.1863580788986368, 55.94468066708487)).build();
+        DroneForServicePoint dfsp = DroneForServicePoint.builder().servicePointId(1)
+                .drones(new DroneForServicePoint.DroneAvailability[]{
+                        DroneForServicePoint.DroneAvailability.builder().id("1")
+                                .availability(new DroneForServicePoint.Availability[]{
+                                        DroneForServicePoint.Availability.builder().dayOfWeek(DayOfWeek.SUNDAY)
+                                                .from(LocalTime.MIDNIGHT).until(LocalTime.of(23, 59, 59)).build()})
+                                .build()})
+                .build();
+        RestrictedArea area = RestrictedArea.builder().name("George Square Area").id(1)
+                .limits(RestrictedArea.limits.builder().lower(0).upper(-1).build())
+                .vertices(new RestrictedArea.vertices[]{
+                        RestrictedArea.vertices.builder().lng(-3.190578818321228).lat(55.94402412577528).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1899887323379517).lat(55.94284650540911).build(),
+                        RestrictedArea.vertices.builder().lng(-3.1899887323379517).lat(55.94284650540911).build()})
+                .build();
+
+        return new IlpSnapshot(
+                new IlpPayload<>(List.of(drone), "\"v1\"", "Tue, 01 Apr 2025 10:00:00 GMT", new byte[]{1, 2, 3}),
+                IlpPayload.of(List.of(sp)),
+                IlpPayload.of(List.of(dfsp)),
+                IlpPayload.of(List.of(area)),
+                Instant.parse("2025-04-01T10:00:00Z"));
+    }
+}
@@ -0,0 +1,90 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the open set of the path search.
+ */
+class IndexedMinHeapTest {
+
+    @Test
+    void poll_returnsIdsByAscendingPriority() {
+        IndexedMinHeap heap = new IndexedMinHeap(4);
+        heap.push(0, 3.0);
+        heap.push(1, 1.0);
+        heap.push(2, 2.0);
+
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(0, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    void push_lowersPriority_ofQueuedId() {
+        IndexedMinHeap heap = new IndexedMinHeap(4);
+        heap.push(0, 1.0);
+        heap.push(1, 2.0);
+
+        heap.push(1, 0.5);
+
+        assertEquals(2, heap.size());
+        assertEquals(1, heap.poll());
+    }
+
+    @Test
+    void push_ignoresHigherPriority_ofQueuedId() {
+        IndexedMinHeap heap = new IndexedMinHeap(4);
+        heap.push(0, 1.0);
+        heap.push(1, 2.0);
+
+        heap.push(0, 5.0);
+
+        assertEquals(0, heap.poll());
+    }
+
+    @Test
+    void polledId_canBeQueuedAgain() {
+        IndexedMinHeap heap = new IndexedMinHeap(4);
+        heap.push(7, 1.0);
+
+        assertEquals(7, heap.poll());
+        assertFalse(heap.contains(7));
+
+        heap.push(7, 4.0);
+        assertTrue(heap.contains(7));
+    }
+
+    @Test
+    void matchesPriorityQueue_onRandomPushesAndDecreases() {
+        Random random = new Random(42);
+        IndexedMinHeap heap = new IndexedMinHeap(2);
+        double[] best = new double[5_000];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(best.length);
+            double priority = random.nextInt(1_000_000);
+            heap.push(id, priority);
+            best[id] = Math.min(best[id], priority);
+        }
+
+        PriorityQueue<Double> expected = new PriorityQueue<>();
+        for (double p : best) if (p != Double.POSITIVE_INFINITY) expected.add(p);
+        List<Double> polled = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            int id = heap.poll();
+            polled.add(best[id]);
+        }
+        List<Double> sorted = new ArrayList<>();
+        while (!expected.isEmpty()) sorted.add(expected.poll());
+        assertEquals(sorted, polled);
+    }
+}
@@ -0,0 +1,62 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the primitive map the path search numbers grid cells with.
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void get_returnsMissing_forUnknownKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        assertEquals(LongIntHashMap.MISSING, map.get(42L));
+    }
+
+    @Test
+    void put_replacesValue_forExistingKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+
+        map.put(-7L, 1);
+        map.put(-7L, 2);
+
+        assertEquals(2, map.get(-7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void keepsEveryEntry_whenGrowingPastItsInitialCapacity() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        for (int i = 0; i < 10_000; i++) map.put(((long) i << 32) | (i * 31L & 0xFFFFFFFFL), i);
+
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) assertEquals(i, map.get(((long) i << 32) | (i * 31L & 0xFFFFFFFFL)));
+    }
+
+    @Test
+    void clear_forgetsAllEntries() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(1L, 1);
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.MISSING, map.get(1L));
+    }
+
+    @Test
+    void reuseAfterClear_seesOnlyNewEntries() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 100; i++) map.put(i, i);
+
+        map.clear();
+        map.put(5L, 50);
+
+        assertEquals(1, map.size());
+        assertEquals(50, map.get(5L));
+        assertEquals(LongIntHashMap.MISSING, map.get(6L));
+    }
+}
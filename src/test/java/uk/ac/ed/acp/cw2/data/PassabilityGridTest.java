@@ -0,0 +1,62 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the rasterized passability of the path search grid.
+ */
+class PassabilityGridTest {
+
+    @Test
+    void build_recordsBlockedCellsAndMoves_insideTheRegions() {
+        PassabilityGrid grid = PassabilityGrid.build(List.of(new int[]{0, 0, 4, 4}),
+                (x, y) -> x == 2 && y == 2,
+                (x, y) -> x == 1 ? 0b101 : 0);
+
+        assertTrue(grid.isBlocked(2, 2));
+        assertFalse(grid.isBlocked(1, 2));
+        assertEquals(PassabilityGrid.ALL_DIRECTIONS, grid.blockedDirections(2, 2));
+        assertEquals(0b101, grid.blockedDirections(1, 3));
+        assertEquals(0, grid.blockedDirections(3, 3));
+    }
+
+    @Test
+    void cellsOutsideTheRegions_areClear() {
+        PassabilityGrid grid = PassabilityGrid.build(List.of(new int[]{0, 0, 1, 1}, new int[]{5, 5, 6, 6}),
+                (x, y) -> true,
+                (x, y) -> PassabilityGrid.ALL_DIRECTIONS);
+
+        assertTrue(grid.isBlocked(6, 5));
+        assertFalse(grid.isBlocked(3, 3));
+        assertEquals(0, grid.blockedDirections(3, 3));
+        assertFalse(grid.isBlocked(-10, 40));
+        assertEquals(0, grid.blockedDirections(-10, 40));
+    }
+
+    @Test
+    void build_evaluatesOverlappingRegionsOnce() {
+        int[] calls = new int[1];
+        PassabilityGrid.build(List.of(new int[]{0, 0, 2, 2}, new int[]{1, 1, 3, 3}),
+                (x, y) -> {
+                    calls[0]++;
+                    return false;
+                },
+                (x, y) -> 0);
+
+        assertEquals(9 + 9 - 4, calls[0]);
+    }
+
+    @Test
+    void build_givesUp_onRegionsTooFarApart() {
+        PassabilityGrid grid = PassabilityGrid.build(
+                List.of(new int[]{0, 0, 0, 0}, new int[]{100_000, 100_000, 100_000, 100_000}),
+                (x, y) -> false,
+                (x, y) -> 0);
+
+        assertNull(grid);
+    }
+}
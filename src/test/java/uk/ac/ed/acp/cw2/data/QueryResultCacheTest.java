@@ -0,0 +1,107 @@
+package uk.ac.ed.acp.cw2.data;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.QueryRequest;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the versioned LRU cache of drone query results.
+ */
+class QueryResultCacheTest {
+
+    private final QueryResultCache cache = new QueryResultCache(2);
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    @Test
+    void equalQueries_shareOneResult() {
+        WorldSnapshot world = world(drone("1", 5.0), drone("2", 8.0));
+
+        assertArrayEquals(new String[]{"2"}, get(world, "capacity", "=", "8"));
+        assertArrayEquals(new String[]{"2"}, get(world, "capacity", "=", "8.0"));
+
+        assertEquals(1, evaluations.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void leastRecentlyUsedResult_isEvicted() {
+        WorldSnapshot world = world(drone("1", 5.0));
+
+        get(world, "capacity", "=", "1");
+        get(world, "capacity", "=", "2");
+        get(world, "capacity", "=", "1");
+        get(world, "capacity", "=", "3");
+        get(world, "capacity", "=", "1");
+        get(world, "capacity", "=", "2");
+
+        assertEquals(4, evaluations.get(), "only capacity = 2 should have been evaluated twice");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void newFleetVersion_invalidatesEveryResult() {
+        WorldSnapshot first = world(drone("1", 5.0));
+        WorldSnapshot second = WorldSnapshot.of(snapshot(drone("1", 8.0)), first);
+
+        assertArrayEquals(new String[0], get(first, "capacity", "=", "8"));
+        assertArrayEquals(new String[]{"1"}, get(second, "capacity", "=", "8"));
+        assertEquals(1, cache.size());
+
+        // a request still holding the old world is answered, but does not evict the new generation
+        assertArrayEquals(new String[0], get(first, "capacity", "=", "8"));
+        assertArrayEquals(new String[]{"1"}, get(second, "capacity", "=", "8"));
+        assertEquals(3, evaluations.get());
+    }
+
+    @Test
+    void returnedIds_areCopies() {
+        WorldSnapshot world = world(drone("1", 5.0));
+
+        get(world, "capacity", "=", "5")[0] = "changed";
+
+        assertArrayEquals(new String[]{"1"}, get(world, "capacity", "=", "5"));
+    }
+
+    @Test
+    void bindTo_publishesHitsAndMisses() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        WorldSnapshot world = world(drone("1", 5.0));
+
+        get(world, "capacity", "=", "5");
+        get(world, "capacity", "=", "5");
+
+        assertEquals(1.0, registry.get("drone.query.cache").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("drone.query.cache").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("drone.query.cache.size").gauge().value());
+    }
+
+    private String[] get(WorldSnapshot world, String attribute, String operator, String value) {
+        DroneQuery query = DroneQuery.compile(List.of(new QueryRequest(attribute, operator, value)));
+        return cache.get(world, query, () -> {
+            evaluations.incrementAndGet();
+            return query.matchingIds(world.getDroneColumns());
+        });
+    }
+
+    private static WorldSnapshot world(Drone... drones) {
+        return WorldSnapshot.of(snapshot(drones));
+    }
+
+    private static IlpSnapshot snapshot(Drone... drones) {
+        return new IlpSnapshot(List.of(drones), List.of(), List.of(), List.of(), Instant.now());
+    }
+
+    private static Drone drone(String id, double capacity) {
+        return Drone.builder().id(id).name("d" + id).cooling(true).heating(false).capacity(capacity).maxMoves(10)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+    }
+}
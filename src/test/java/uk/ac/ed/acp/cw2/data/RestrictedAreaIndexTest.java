@@ -0,0 +1,118 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the edge index, which must answer exactly as asking every buffered polygon in turn.
+ */
+class RestrictedAreaIndexTest {
+
+    private static final double STEP = 1.5E-4;
+
+    @Test
+    void answersLikeEveryPolygon_forRandomPolygonsAndQueries() {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            List<BufferedPolygon> polygons = new ArrayList<>();
+            int count = 1 + random.nextInt(30);
+            for (int p = 0; p < count; p++) polygons.add(randomPolygon(random));
+            RestrictedAreaIndex index = new RestrictedAreaIndex(polygons, 4 * STEP, STEP / 2);
+
+            for (int q = 0; q < 5_000; q++) {
+                double ax = -3.192 + random.nextDouble() * 0.014;
+                double ay = 55.938 + random.nextDouble() * 0.014;
+                double bx = ax + (random.nextDouble() - 0.5) * 4 * STEP;
+                double by = ay + (random.nextDouble() - 0.5) * 4 * STEP;
+
+                boolean contains = false;
+                boolean touched = false;
+                for (BufferedPolygon polygon : polygons) {
+                    contains |= polygon.contains(ax, ay);
+                    touched |= polygon.isTouchedBy(ax, ay, bx, by, STEP / 2);
+                }
+                assertEquals(contains, index.contains(ax, ay), "contains(" + ax + ", " + ay + ")");
+                assertEquals(touched, index.isTouchedBy(ax, ay, bx, by, STEP / 2),
+                        "isTouchedBy(" + ax + ", " + ay + ", " + bx + ", " + by + ")");
+            }
+        }
+    }
+
+    @Test
+    void nothingIsTouched_farFromEveryPolygon() {
+        RestrictedAreaIndex index = new RestrictedAreaIndex(
+                List.of(BufferedPolygon.of(polygon(0, 0, 0, 10, 10, 10, 10, 0), 1.0)), 2.0, 0.5);
+
+        assertFalse(index.contains(-100, 5));
+        assertFalse(index.contains(5, 100));
+        assertFalse(index.isTouchedBy(20, 20, 30, 30, 0.5));
+        assertFalse(index.isTouchedBy(-20, -5, -20, 15, 0.5));
+    }
+
+    @Test
+    void segmentCrossingThePolygon_isTouched_evenWithEndsOutsideTheGrid() {
+        RestrictedAreaIndex index = new RestrictedAreaIndex(
+                List.of(BufferedPolygon.of(polygon(0, 0, 0, 10, 10, 10, 10, 0), 1.0)), 2.0, 0.5);
+
+        assertTrue(index.isTouchedBy(-50, 5, 50, 5, 0.5));
+        assertTrue(index.contains(5, 5));
+    }
+
+    @Test
+    void overlappingPolygonsOfOppositeOrientation_areBothInside() {
+        // clockwise and anticlockwise squares sharing (5..10, 0..10): their windings must not cancel
+        RestrictedAreaIndex index = new RestrictedAreaIndex(List.of(
+                BufferedPolygon.of(polygon(0, 0, 0, 10, 10, 10, 10, 0), 0.0),
+                BufferedPolygon.of(polygon(5, 0, 15, 0, 15, 10, 5, 10), 0.0)), 2.0, 0.5);
+
+        assertTrue(index.contains(7.5, 5));
+        assertTrue(index.contains(2.5, 5));
+        assertTrue(index.contains(12.5, 5));
+    }
+
+    @Test
+    void emptyIndex_touchesNothing() {
+        RestrictedAreaIndex index = new RestrictedAreaIndex(List.of(), 2.0, 0.5);
+
+        assertFalse(index.contains(0, 0));
+        assertFalse(index.isTouchedBy(-1, -1, 1, 1, 0.5));
+    }
+
+    @Test
+    void isTouchedBy_rejectsHalfWidthsWiderThanIndexed() {
+        RestrictedAreaIndex index = new RestrictedAreaIndex(
+                List.of(BufferedPolygon.of(polygon(0, 0, 0, 10, 10, 10, 10, 0), 1.0)), 2.0, 0.5);
+
+        assertThrows(IllegalArgumentException.class, () -> index.isTouchedBy(20, 20, 30, 30, 0.6));
+    }
+
+    // vertices at random angles around a random centre, so edges often cross and polygons overlap
+    private static BufferedPolygon randomPolygon(Random random) {
+        int n = 3 + random.nextInt(12);
+        double cx = -3.19 + random.nextDouble() * 0.01;
+        double cy = 55.94 + random.nextDouble() * 0.01;
+        double radius = 0.0002 + random.nextDouble() * 0.002;
+        double[] lngLat = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double r = radius * (0.3 + random.nextDouble());
+            lngLat[2 * i] = cx + r * Math.cos(angle);
+            lngLat[2 * i + 1] = cy + r * Math.sin(angle);
+        }
+        return BufferedPolygon.of(polygon(lngLat), STEP / 2);
+    }
+
+    private static RestrictedArea polygon(double... lngLat) {
+        RestrictedArea.vertices[] vertices = new RestrictedArea.vertices[lngLat.length / 2];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = RestrictedArea.vertices.builder().lng(lngLat[2 * i]).lat(lngLat[2 * i + 1]).build();
+        }
+        return RestrictedArea.builder().name("area").id(1).vertices(vertices).build();
+    }
+}
@@ -0,0 +1,153 @@
+package uk.ac.ed.acp.cw2.data;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.dto.LngLat;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the indexed, versioned view of an ILP snapshot.
+ */
+class WorldSnapshotTest {
+
+    private static final DroneServicePoint AT = servicePoint(1);
+    private static final DroneServicePoint OCEAN = servicePoint(2);
+
+    @Test
+    void indices_resolveDronesHomesAndAvailability() {
+        WorldSnapshot world = WorldSnapshot.of(snapshot(List.of(drone("1"), drone("2"))));
+
+        assertEquals(1, world.getVersion());
+        assertEquals("2", world.getDroneById().get("2").getId());
+        assertSame(OCEAN, world.getServicePointById().get(2));
+        assertSame(AT, world.getHomeByDroneId().get("1"));
+        assertSame(OCEAN, world.getHomeByDroneId().get("2"));
+        assertNull(world.getHomeByDroneId().get("3"), "service point 9 does not exist");
+
+        // drone 2 is listed at two service points, its windows are merged
+        assertEquals(2, world.getAvailability("2").size());
+        assertTrue(world.getAvailability("missing").isEmpty());
+    }
+
+    @Test
+    void of_reusesIndices_whenOnlyStalenessChanges() {
+        WorldSnapshot first = WorldSnapshot.of(snapshot(List.of(drone("1"))));
+        IlpSnapshot stale = first.getSnapshot().withStaleDatasets(EnumSet.of(IlpDataset.DRONES));
+
+        WorldSnapshot second = WorldSnapshot.of(stale, first);
+
+        assertSame(first, WorldSnapshot.of(first.getSnapshot(), first));
+        assertSame(stale, second.getSnapshot());
+        assertEquals(first.getVersion(), second.getVersion());
+        assertSame(first.getDroneById(), second.getDroneById());
+        assertSame(first.getAvailabilityByDroneId(), second.getAvailabilityByDroneId());
+        assertSame(first.getAirspace(), second.getAirspace());
+    }
+
+    @Test
+    void of_reindexesAndBumpsVersion_whenDataChanges() {
+        WorldSnapshot first = WorldSnapshot.of(snapshot(List.of(drone("1"))));
+
+        WorldSnapshot second = WorldSnapshot.of(snapshot(List.of(drone("2"))), first);
+
+        assertEquals(2, second.getVersion());
+        assertNull(second.getDroneById().get("1"));
+        assertNotNull(second.getDroneById().get("2"));
+    }
+
+    @Test
+    void of_keepsIndicesOfUnchangedDatasets_whenAnotherOneChanges() {
+        WorldSnapshot first = WorldSnapshot.of(snapshot(List.of(drone("1"))));
+        IlpSnapshot dronesChanged = new IlpSnapshot(IlpPayload.of(List.of(drone("2"))),
+                first.getSnapshot().getServicePointsPayload(),
+                first.getSnapshot().getDronesForServicePointsPayload(),
+                first.getSnapshot().getRestrictedAreasPayload(), Instant.now());
+
+        WorldSnapshot second = WorldSnapshot.of(dronesChanged, first);
+
+        assertEquals(2, second.getVersion());
+        assertNotSame(first.getDroneColumns(), second.getDroneColumns());
+        assertSame(first.getServicePointById(), second.getServicePointById());
+        assertSame(first.getHomeByDroneId(), second.getHomeByDroneId());
+        assertSame(first.getAvailabilityIndex(), second.getAvailabilityIndex());
+        assertTrue(second.getAvailabilityIndex().availableAt(DayOfWeek.MONDAY, LocalTime.NOON).test("2"));
+        assertSame(first.getAirspace(), second.getAirspace());
+    }
+
+    @Test
+    void of_preparesAirspaceAgain_whenRestrictedAreasChange() {
+        WorldSnapshot first = WorldSnapshot.of(snapshot(List.of(drone("1"))));
+        IlpSnapshot areasChanged = new IlpSnapshot(first.getSnapshot().getDronesPayload(),
+                first.getSnapshot().getServicePointsPayload(),
+                first.getSnapshot().getDronesForServicePointsPayload(),
+                IlpPayload.of(List.of(square())), Instant.now());
+
+        WorldSnapshot second = WorldSnapshot.of(areasChanged, first);
+
+        assertTrue(first.getAirspace().isEmpty());
+        assertNotSame(first.getAirspace(), second.getAirspace());
+        assertFalse(second.getAirspace().isEmpty());
+        assertSame(first.getDroneById(), second.getDroneById());
+    }
+
+    @Test
+    void indices_areImmutable() {
+        WorldSnapshot world = WorldSnapshot.of(snapshot(List.of(drone("1"))));
+
+        assertThrows(UnsupportedOperationException.class, () -> world.getDroneById().put("x", drone("x")));
+        assertThrows(UnsupportedOperationException.class, () -> world.getAvailability("1").clear());
+    }
+
+    private static IlpSnapshot snapshot(List<Drone> drones) {
+        return new IlpSnapshot(drones, List.of(AT, OCEAN),
+                List.of(dronesAt(1, "1", "2"), dronesAt(2, "2"), dronesAt(9, "3")),
+                List.of(), Instant.now());
+    }
+
+    private static DroneForServicePoint dronesAt(int servicePointId, String... droneIds) {
+        DroneForServicePoint.DroneAvailability[] drones = new DroneForServicePoint.DroneAvailability[droneIds.length];
+        for (int i = 0; i < droneIds.length; i++) {
+            drones[i] = DroneForServicePoint.DroneAvailability.builder()
+                    .id(droneIds[i])
+                    .availability(new DroneForServicePoint.Availability[]{
+                            DroneForServicePoint.Availability.builder()
+                                    .dayOfWeek(DayOfWeek.MONDAY)
+                                    .from(LocalTime.of(9, 0))
+                                    .until(LocalTime.of(17, 0))
+                                    .build()})
+                    .build();
+        }
+        return DroneForServicePoint.builder().servicePointId(servicePointId).drones(drones).build();
+    }
+
+    private static DroneServicePoint servicePoint(int id) {
+        return DroneServicePoint.builder()
+                .id(id)
+                .name("sp" + id)
+                .location(LngLat.builder().lng(-3.19).lat(55.94).build())
+                .build();
+    }
+
+    private static RestrictedArea square() {
+        return RestrictedArea.builder().name("square").id(1).vertices(new RestrictedArea.vertices[]{
+                RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9440).build(),
+                RestrictedArea.vertices.builder().lng(-3.1906).lat(55.9443).build(),
+                RestrictedArea.vertices.builder().lng(-3.1902).lat(55.9443).build(),
+                RestrictedArea.vertices.builder().lng(-3.1902).lat(55.9440).build()}).build();
+    }
+
+    private static Drone drone(String id) {
+        return Drone.builder().id(id).name("d" + id).cooling(true).heating(false).capacity(1.0).maxMoves(10)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+    }
+}
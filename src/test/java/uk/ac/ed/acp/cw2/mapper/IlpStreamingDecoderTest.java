@@ -0,0 +1,151 @@
+package uk.ac.ed.acp.cw2.mapper;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw2.entity.Drone;
+import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
+import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for decoding ILP JSON straight into entities with the streaming parser.
+ */
+class IlpStreamingDecoderTest {
+
+    private static InputStream json(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void decodeDrones_mapsCapabilities_andSkipsUnknownFields() throws IOException {
+        List<Drone> drones = IlpStreamingDecoder.decodeDrones(json("""
+                [{"name":"Drone 1","id":"1","extra":{"nested":[1,2,{"x":null}]},
+                  "capability":{"cooling":true,"heating":false,"capacity":4.0,"maxMoves":2000,
+                                "costPerMove":0.01,"costInitial":4.3,"costFinal":6.5,"colour":"red"}}]
+                """));
+
+        assertEquals(1, drones.size());
+        Drone d = drones.getFirst();
+        assertEquals("1", d.getId());
+        assertEquals("Drone 1", d.getName());
+        assertTrue(d.getCooling());
+        assertFalse(d.getHeating());
+        assertEquals(4.0, d.getCapacity());
+        assertEquals(2000, d.getMaxMoves());
+        assertEquals(0.01, d.getCostPerMove());
+        assertEquals(4.3, d.getCostInitial());
+        assertEquals(6.5, d.getCostFinal());
+    }
+
+    @Test
+    void decodeDrones_acceptsNumericIds_andMissingOptionalValues() throws IOException {
+        List<Drone> drones = IlpStreamingDecoder.decodeDrones(json("""
+                [{"id":7,"capability":{"capacity":"2.5","cooling":null}}]
+                """));
+
+        assertEquals("7", drones.getFirst().getId());
+        assertEquals(2.5, drones.getFirst().getCapacity());
+        assertNull(drones.getFirst().getCooling());
+        assertNull(drones.getFirst().getMaxMoves());
+    }
+
+    @Test
+    void decodeDrones_rejectsMissingCapability_andMalformedValues() {
+        assertThrows(JsonMappingException.class,
+                () -> IlpStreamingDecoder.decodeDrones(json("[{\"id\":\"1\"}]")));
+        assertThrows(JsonMappingException.class,
+                () -> IlpStreamingDecoder.decodeDrones(json("[{\"capability\":{}}]")));
+        assertThrows(JsonMappingException.class,
+                () -> IlpStreamingDecoder.decodeDrones(json("[{\"id\":\"1\",\"capability\":{\"capacity\":\"lots\"}}]")));
+        assertThrows(JsonMappingException.class,
+                () -> IlpStreamingDecoder.decodeDrones(json("{\"id\":\"1\"}")));
+        assertThrows(IOException.class,
+                () -> IlpStreamingDecoder.decodeDrones(json("[{\"id\":\"1\",")));
+    }
+
+    @Test
+    void decodeServicePoints_mapsLocation() throws IOException {
+        List<DroneServicePoint> sps = IlpStreamingDecoder.decodeServicePoints(json("""
+                [{"name":"Appleton Tower","id":1,"location":{"lng":-3.1863,"lat":55.9445,"alt":50}}]
+                """));
+
+        assertEquals(1, sps.getFirst().getId());
+        assertEquals("Appleton Tower", sps.getFirst().getName());
+        assertEquals(-3.1863, sps.getFirst().getLocation().getLng());
+        assertEquals(55.9445, sps.getFirst().getLocation().getLat());
+    }
+
+    @Test
+    void decodeDronesForServicePoints_mapsAvailabilityWindows() throws IOException {
+        List<DroneForServicePoint> dfsp = IlpStreamingDecoder.decodeDronesForServicePoints(json("""
+                [{"servicePointId":1,"drones":[{"id":"1","availability":[
+                    {"dayOfWeek":"MONDAY","from":"00:00:00","until":"23:59:59"},
+                    {"dayOfWeek":"FRIDAY","from":"12:00","until":"18:30:00"}]}]}]
+                """));
+
+        DroneForServicePoint.DroneAvailability da = dfsp.getFirst().getDrones()[0];
+        assertEquals(1, dfsp.getFirst().getServicePointId());
+        assertEquals("1", da.getId());
+        assertEquals(2, da.getAvailability().length);
+        assertEquals(DayOfWeek.FRIDAY, da.getAvailability()[1].getDayOfWeek());
+        assertEquals(LocalTime.of(12, 0), da.getAvailability()[1].getFrom());
+        assertEquals(LocalTime.of(18, 30), da.getAvailability()[1].getUntil());
+
+        assertThrows(JsonMappingException.class, () -> IlpStreamingDecoder.decodeDronesForServicePoints(json("""
+                [{"servicePointId":1,"drones":[{"id":"1","availability":[{"dayOfWeek":"FUNDAY"}]}]}]
+                """)));
+    }
+
+    @Test
+    void decodeRestrictedAreas_mapsLimitsAndVertices() throws IOException {
+        List<RestrictedArea> areas = IlpStreamingDecoder.decodeRestrictedAreas(json("""
+                [{"name":"George Square Area","id":1,"limits":{"lower":0,"upper":-1},
+                  "vertices":[{"lng":-3.190578818321228,"lat":55.94402412577528,"alt":0},
+                              {"lng":-3.1899887323379517,"lat":55.94284650540911}]}]
+                """));
+
+        RestrictedArea area = areas.getFirst();
+        assertEquals("George Square Area", area.getName());
+        assertEquals(-1, area.getLimits().getUpper());
+        assertEquals(2, area.getVertices().length);
+        assertEquals(55.94284650540911, area.getVertices()[1].getLat());
+
+        assertThrows(JsonMappingException.class, () -> IlpStreamingDecoder.decodeRestrictedAreas(json("""
+                [{"name":"No vertices","id":2,"limits":{"lower":0,"upper":-1}}]
+                """)));
+    }
+
+    @Test
+    void decodeDrones_handlesLargeFleetFromAStream() throws IOException {
+        int count = 100_000;
+        // generate the body lazily so the test never holds the whole document as one string either
+        List<InputStream> parts = new ArrayList<>(count + 2);
+        parts.add(json("["));
+        IntStream.range(0, count).forEach(i -> parts.add(json((i == 0 ? "" : ",")
+                + "{\"id\":\"" + i + "\",\"name\":\"Drone " + i + "\",\"capability\":{\"cooling\":" + (i % 2 == 0)
+                + ",\"heating\":true,\"capacity\":" + (i % 20) + ".5,\"maxMoves\":1000,"
+                + "\"costPerMove\":0.02,\"costInitial\":1.0,\"costFinal\":1.0}}")));
+        parts.add(json("]"));
+
+        List<Drone> drones = IlpStreamingDecoder.decodeDrones(new SequenceInputStream(Collections.enumeration(parts)));
+
+        assertEquals(count, drones.size());
+        assertEquals("99999", drones.getLast().getId());
+        assertEquals(19.5, drones.getLast().getCapacity());
+        assertFalse(drones.getLast().getCooling());
+    }
+}
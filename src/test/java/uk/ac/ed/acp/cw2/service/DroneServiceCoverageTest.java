@@ -2,6 +2,10 @@ package uk.ac.ed.acp.cw2.service;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.web.server.ResponseStatusException;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+import uk.ac.ed.acp.cw2.data.WorldSnapshot;
+import uk.ac.ed.acp.cw2.dto.BatchQueryRequest;
+import uk.ac.ed.acp.cw2.dto.BatchQueryResponse;
 import uk.ac.ed.acp.cw2.dto.CalculatedDeliveryPathRequest;
 import uk.ac.ed.acp.cw2.dto.LngLat;
 import uk.ac.ed.acp.cw2.dto.MedDispatchRecRequest;
@@ -11,10 +15,13 @@ import uk.ac.ed.acp.cw2.entity.Drone;
 import uk.ac.ed.acp.cw2.entity.DroneForServicePoint;
 import uk.ac.ed.acp.cw2.entity.DronePaths;
 import uk.ac.ed.acp.cw2.entity.DroneServicePoint;
+import uk.ac.ed.acp.cw2.entity.RestrictedArea;
 
 import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -98,8 +105,79 @@ class DroneServiceCoverageTest {
 
         // d2 is filtered out by maxMoves<1 when req1 has maxCost; d1 remains and has enough capacity.
         assertArrayEquals(new String[]{"1"}, ids);
-        // and capacity was decremented by reqs that passed capacity filter
-        assertEquals(0.0, d1.getCapacity(), 1e-9);
+        // capacity is consumed in a per-request ledger, the drones themselves are left untouched
+        assertEquals(5.0, d1.getCapacity(), 1e-9);
+        assertArrayEquals(ids, service.queryAvailableDrones(List.of(req1, req2, req3), List.of(d1, d2), List.of(dfsp)));
+    }
+
+    @Test
+    void queryAvailableDrones_prunesDronesThatCannotAffordTheRoundTripFromHome() {
+        Drone d1 = Drone.builder().id("1").name("d1").cooling(false).heating(false).capacity(5.0).maxMoves(100)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+        DroneServicePoint home = DroneServicePoint.builder().id(1).name("home")
+                .location(LngLat.builder().lng(-3.19).lat(55.94).build()).build();
+        DroneForServicePoint dfsp = DroneForServicePoint.builder()
+                .servicePointId(1)
+                .drones(new DroneForServicePoint.DroneAvailability[]{DroneForServicePoint.DroneAvailability.builder()
+                        .id("1").availability(new DroneForServicePoint.Availability[0]).build()})
+                .build();
+        WorldSnapshot world = WorldSnapshot.of(new IlpSnapshot(List.of(d1), List.of(home), List.of(dfsp), List.of(),
+                Instant.now()));
+
+        // 10 steps east of home: at least (10 - 1 - sqrt 2) / sqrt 2 = 5.36 moves each way, so at least
+        // 1 + 1 + 10.73 * 1 = 12.73
+        LngLat delivery = LngLat.builder().lng(-3.19 + 10 * 1.5E-4).lat(55.94).build();
+        assertEquals(2 * (9 - Math.sqrt(2)) / Math.sqrt(2), DroneService.minRoundTripMoves(home, delivery), 1e-6);
+
+        MedDispatchRecRequest tooCheap = new MedDispatchRecRequest(1, null, null,
+                new MedDispatchRecRequest.Requirements(1.0, false, false, 12.5), delivery);
+        MedDispatchRecRequest affordable = new MedDispatchRecRequest(2, null, null,
+                new MedDispatchRecRequest.Requirements(1.0, false, false, 13.0), delivery);
+
+        assertArrayEquals(new String[0], service.queryAvailableDrones(List.of(tooCheap), world.getDrones(), world));
+        assertArrayEquals(new String[]{"1"}, service.queryAvailableDrones(List.of(affordable), world.getDrones(), world));
+        // without a known home only the fixed costs and one move are certain
+        assertEquals(0.0, DroneService.minRoundTripMoves(null, delivery));
+    }
+
+    @Test
+    void queryAvailableDrones_keepsADrone_whosePlannedDiagonalRoundTripIsWithinMaxCost() {
+        Drone drone = Drone.builder().id("1").name("d1").cooling(false).heating(false).capacity(5.0).maxMoves(1000)
+                .costPerMove(1.0).costInitial(0.0).costFinal(0.0).build();
+        DroneServicePoint home = DroneServicePoint.builder().id(1).name("home")
+                .location(LngLat.builder().lng(-3.19).lat(55.94).build()).build();
+        DroneForServicePoint dfsp = DroneForServicePoint.builder()
+                .servicePointId(1)
+                .drones(new DroneForServicePoint.DroneAvailability[]{DroneForServicePoint.DroneAvailability.builder()
+                        .id("1").availability(new DroneForServicePoint.Availability[0]).build()})
+                .build();
+        // a small no-fly square halfway along the diagonal makes the planner search, flying diagonal moves
+        double step = 1.5E-4;
+        double cx = -3.19 + 10 * step, cy = 55.94 + 10 * step, half = 1.5 * step;
+        RestrictedArea square = RestrictedArea.builder().name("square").id(1).vertices(new RestrictedArea.vertices[]{
+                RestrictedArea.vertices.builder().lng(cx - half).lat(cy - half).build(),
+                RestrictedArea.vertices.builder().lng(cx - half).lat(cy + half).build(),
+                RestrictedArea.vertices.builder().lng(cx + half).lat(cy + half).build(),
+                RestrictedArea.vertices.builder().lng(cx + half).lat(cy - half).build(),
+                RestrictedArea.vertices.builder().lng(cx - half).lat(cy - half).build()}).build();
+        WorldSnapshot world = WorldSnapshot.of(new IlpSnapshot(List.of(drone), List.of(home), List.of(dfsp),
+                List.of(square), Instant.now()));
+
+        // 20 steps north-east of home
+        LngLat delivery = LngLat.builder().lng(-3.19 + 20 * step).lat(55.94 + 20 * step).build();
+        MedDispatchRecRequest probe = new MedDispatchRecRequest(1, null, null,
+                new MedDispatchRecRequest.Requirements(1.0, false, false, null), delivery);
+        double plannedCost = service.calcDeliveryPath(List.of(probe), world, new String[]{"1"}).getTotalCost();
+
+        // fewer moves than the distance in steps, so a bound assuming one step per move would have dropped it
+        double distanceInSteps = Math.hypot(20, 20);
+        assertTrue(plannedCost < 2 * (distanceInSteps - 1), "planned " + plannedCost);
+        assertTrue(DroneService.minRoundTripMoves(home, delivery) <= plannedCost);
+
+        MedDispatchRecRequest atPlannedCost = new MedDispatchRecRequest(2, null, null,
+                new MedDispatchRecRequest.Requirements(1.0, false, false, plannedCost), delivery);
+        assertArrayEquals(new String[]{"1"},
+                service.queryAvailableDrones(List.of(atPlannedCost), world.getDrones(), world));
     }
 
     @Test
@@ -204,6 +282,81 @@ class DroneServiceCoverageTest {
         assertArrayEquals(new String[0], service.queryAsPath("doesNotExist", "x", drones));
     }
 
+    @Test
+    void query_rejectsUnparseableValue_with400() {
+        List<Drone> drones = List.of(
+                Drone.builder().id("1").name("d1").cooling(true).heating(false).capacity(10.0).maxMoves(10)
+                        .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build()
+        );
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.query(List.of(new QueryRequest("capacity", ">", "ten")), drones));
+        assertEquals(400, ex.getStatusCode().value());
+        assertEquals(400, assertThrows(ResponseStatusException.class,
+                () -> service.queryAsPath("maxMoves", "x", drones)).getStatusCode().value());
+    }
+
+    @Test
+    void batchQuery_answersEveryQueryAndLookupInRequestOrder() {
+        List<Drone> drones = List.of(
+                Drone.builder().id("1").name("d1").cooling(true).heating(false).capacity(10.0).maxMoves(10)
+                        .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build(),
+                Drone.builder().id("2").name("d2").cooling(false).heating(false).capacity(4.0).maxMoves(10)
+                        .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build()
+        );
+        WorldSnapshot world = WorldSnapshot.of(new IlpSnapshot(drones, List.of(), List.of(), List.of(), Instant.now()));
+
+        BatchQueryResponse res = service.batchQuery(new BatchQueryRequest(
+                List.of(List.of(new QueryRequest("cooling", "=", "true")),
+                        List.of(new QueryRequest("capacity", "<", "5"), new QueryRequest("cooling", "=", "true")),
+                        List.of()),
+                Arrays.asList("2", "missing", null)), world);
+
+        assertEquals(3, res.getQueries().size());
+        assertArrayEquals(new String[]{"1"}, res.getQueries().get(0));
+        assertArrayEquals(new String[]{"2", "1"}, res.getQueries().get(1));
+        assertArrayEquals(new String[0], res.getQueries().get(2));
+        assertEquals("2", res.getDrones().get(0).getId());
+        assertNull(res.getDrones().get(1));
+        assertNull(res.getDrones().get(2));
+
+        // both queries above now come from the cache
+        service.batchQuery(new BatchQueryRequest(
+                List.of(List.of(new QueryRequest("cooling", "=", "TRUE")),
+                        List.of(new QueryRequest("capacity", "<", "5.0"), new QueryRequest("cooling", "=", "true"))),
+                null), world);
+        assertEquals(2, service.getQueryCache().getHitCount());
+    }
+
+    @Test
+    void batchQuery_andDroneDetails_pickTheSameDrone_whenAnIdIsListedTwice() {
+        Drone first = Drone.builder().id("1").name("first").cooling(true).heating(false).capacity(10.0).maxMoves(10)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+        Drone second = Drone.builder().id("1").name("second").cooling(false).heating(true).capacity(4.0).maxMoves(10)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+        List<Drone> drones = List.of(first, second);
+        WorldSnapshot world = WorldSnapshot.of(new IlpSnapshot(drones, List.of(), List.of(), List.of(), Instant.now()));
+
+        BatchQueryResponse res = service.batchQuery(new BatchQueryRequest(null, List.of("1")), world);
+
+        assertSame(first, service.droneDetails("1", drones));
+        assertSame(first, service.droneDetails("1", world));
+        assertSame(first, res.getDrones().getFirst());
+        assertThrows(ResponseStatusException.class, () -> service.droneDetails("missing", world));
+    }
+
+    @Test
+    void batchQuery_rejectsTheWholeBatch_whenOneQueryIsInvalid() {
+        WorldSnapshot world = WorldSnapshot.of(new IlpSnapshot(List.of(), List.of(), List.of(), List.of(), Instant.now()));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> service.batchQuery(
+                new BatchQueryRequest(List.of(List.of(), List.of(new QueryRequest("capacity", ">", "ten"))), null),
+                world));
+        assertEquals(400, ex.getStatusCode().value());
+        assertTrue(ex.getReason().startsWith("Query 1"));
+        assertEquals(0, service.getQueryCache().getMissCount(), "nothing is evaluated before every query compiled");
+    }
+
     @Test
     void calcDeliveryPath_multiDelivery_hitsLastDeliveryMultiBranch_andGeneratesReturnLeg() {
         Drone drone = Drone.builder().id("1").name("d1")
@@ -0,0 +1,165 @@
+package uk.ac.ed.acp.cw2.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ed.acp.cw2.controller.ILPRestController;
+import uk.ac.ed.acp.cw2.data.IlpSnapshot;
+import uk.ac.ed.acp.cw2.data.IlpSnapshotFile;
+import uk.ac.ed.acp.cw2.data.WorldSnapshot;
+import uk.ac.ed.acp.cw2.entity.Drone;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ILP reference-data cache: single load, shared snapshot and keeping the last good copy.
+ */
+class IlpDataCacheTest {
+
+    private ILPRestController ilpRestController;
+    private IlpDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ilpRestController = mock(ILPRestController.class);
+        when(ilpRestController.fetchAllFromIlp(any())).thenReturn(snapshotOf(drone("1")));
+        cache = new IlpDataCache(ilpRestController, Duration.ofHours(1), null, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void snapshot_fetchesOnce_andServesTheSameCopy() {
+        IlpSnapshot first = cache.snapshot();
+        IlpSnapshot second = cache.snapshot();
+
+        assertSame(first, second);
+        assertEquals("1", first.getDrones().getFirst().getId());
+        verify(ilpRestController, times(1)).fetchAllFromIlp(any());
+    }
+
+    @Test
+    void refresh_replacesSnapshot_whenFetchSucceeds() {
+        IlpSnapshot first = cache.snapshot();
+        when(ilpRestController.fetchAllFromIlp(any())).thenReturn(snapshotOf(drone("2")));
+
+        cache.refresh();
+
+        assertNotSame(first, cache.snapshot());
+        assertEquals("2", cache.snapshot().getDrones().getFirst().getId());
+    }
+
+    @Test
+    void refresh_keepsLastGoodCopy_whenFetchFails() {
+        IlpSnapshot first = cache.snapshot();
+        when(ilpRestController.fetchAllFromIlp(any())).thenThrow(new IllegalStateException("ILP down"));
+
+        cache.refresh();
+
+        assertSame(first, cache.snapshot());
+    }
+
+    @Test
+    void refresh_keepsSnapshotInstance_whenIlpReportsNoChange() {
+        IlpSnapshot first = cache.snapshot();
+        when(ilpRestController.fetchAllFromIlp(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        cache.refresh();
+
+        assertSame(first, cache.snapshot());
+        verify(ilpRestController).fetchAllFromIlp(first);
+    }
+
+    @Test
+    void world_isReindexedAndVersioned_onlyWhenDataChanges() {
+        WorldSnapshot first = cache.world();
+        when(ilpRestController.fetchAllFromIlp(any())).thenAnswer(inv -> inv.getArgument(0));
+        cache.refresh();
+        assertSame(first, cache.world());
+
+        when(ilpRestController.fetchAllFromIlp(any())).thenReturn(snapshotOf(drone("2")));
+        cache.refresh();
+        WorldSnapshot second = cache.world();
+
+        assertEquals(first.getVersion() + 1, second.getVersion());
+        assertNotNull(second.getDroneById().get("2"));
+        assertSame(second.getSnapshot(), cache.snapshot());
+    }
+
+    @Test
+    void snapshot_listsAreImmutable() {
+        IlpSnapshot snapshot = cache.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getDrones().add(drone("3")));
+    }
+
+    @Test
+    void load_writesLocalSnapshot_whenPathConfigured(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("ilp.snapshot");
+        IlpDataCache writing = new IlpDataCache(ilpRestController, Duration.ofHours(1), file.toString(), false);
+        try {
+            writing.snapshot();
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (!Files.exists(file) && System.nanoTime() < deadline) Thread.sleep(10);
+
+            assertEquals("1", IlpSnapshotFile.read(file).getDrones().getFirst().getId());
+        } finally {
+            writing.shutdown();
+        }
+    }
+
+    @Test
+    void loadLocalSnapshot_servesFileWithoutIlp(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("ilp.snapshot");
+        IlpSnapshotFile.write(snapshotOf(drone("local")), file);
+        when(ilpRestController.fetchAllFromIlp(any())).thenThrow(new IllegalStateException("no network"));
+
+        IlpDataCache offline = new IlpDataCache(ilpRestController, Duration.ofHours(1), file.toString(), true);
+        try {
+            offline.loadLocalSnapshot();
+
+            assertEquals("local", offline.snapshot().getDrones().getFirst().getId());
+            assertTrue(offline.snapshot().isStale(), "served from disk until revalidated");
+            offline.refresh();
+            assertEquals("local", offline.snapshot().getDrones().getFirst().getId());
+        } finally {
+            offline.shutdown();
+        }
+    }
+
+    @Test
+    void loadLocalSnapshot_fallsBackToIlp_whenFileIsMissingOrCorrupt(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("ilp.snapshot");
+        Files.writeString(file, "garbage");
+
+        IlpDataCache fallback = new IlpDataCache(ilpRestController, Duration.ofHours(1), file.toString(), true);
+        try {
+            fallback.loadLocalSnapshot();
+
+            assertEquals("1", fallback.snapshot().getDrones().getFirst().getId());
+            verify(ilpRestController).fetchAllFromIlp(null);
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    private static IlpSnapshot snapshotOf(Drone... drones) {
+        return new IlpSnapshot(List.of(drones), List.of(), List.of(), List.of(), Instant.now());
+    }
+
+    private static Drone drone(String id) {
+        return Drone.builder().id(id).name("d" + id).cooling(true).heating(false).capacity(1.0).maxMoves(10)
+                .costPerMove(1.0).costInitial(1.0).costFinal(1.0).build();
+    }
+}